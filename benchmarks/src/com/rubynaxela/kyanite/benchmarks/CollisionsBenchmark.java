@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.benchmarks;
+
+import com.rubynaxela.kyanite.game.entities.MovingEntity;
+import com.rubynaxela.kyanite.graphics.RectangleShape;
+import com.rubynaxela.kyanite.math.Direction;
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
+import com.rubynaxela.kyanite.physics.Collisions;
+import com.rubynaxela.kyanite.util.Time;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the axis-aligned bounding box collision detection and resolution of {@link Collisions}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionsBenchmark {
+
+    private final Time deltaTime = Time.ms(16);
+    private final Vector2f start = Vec2.f(90, 90);
+    private Box moving;
+    private RectangleShape barrier;
+
+    @Setup
+    public void setup() {
+        moving = new Box();
+        moving.setVelocity(Vec2.f(200, 150));
+        moving.setPosition(start);
+        barrier = new RectangleShape(100, 100);
+        barrier.setPosition(100, 100);
+    }
+
+    @Benchmark
+    public Direction.Axis checkAABBCollision() {
+        return Collisions.checkAABBCollision(moving, barrier, deltaTime);
+    }
+
+    @Benchmark
+    public Vector2f shiftToEdge() {
+        moving.setPosition(start);
+        Collisions.shiftToEdge(moving, barrier);
+        return moving.getPosition();
+    }
+
+    private static final class Box extends RectangleShape implements MovingEntity {
+
+        private Vector2f velocity = Vec2.f(0, 0);
+
+        private Box() {
+            super(20, 20);
+        }
+
+        @NotNull
+        @Override
+        public Vector2f getVelocity() {
+            return velocity;
+        }
+
+        @Override
+        public void setVelocity(@NotNull Vector2f velocity) {
+            this.velocity = velocity;
+        }
+    }
+}
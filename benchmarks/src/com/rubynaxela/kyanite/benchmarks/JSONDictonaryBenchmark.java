@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.benchmarks;
+
+import com.rubynaxela.kyanite.data.Dictionary;
+import com.rubynaxela.kyanite.data.JSONDictonary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the typed getters of {@link JSONDictonary}, which are used to read game data and settings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONDictonaryBenchmark {
+
+    private JSONDictonary dictionary;
+
+    @Setup
+    public void setup() {
+        final Map<String, Object> player = new HashMap<>();
+        player.put("name", "Player");
+        player.put("level", 12);
+        final Map<String, Object> data = new HashMap<>();
+        data.put("enabled", true);
+        data.put("count", 42);
+        data.put("score", 1234567890123L);
+        data.put("speed", 3.5);
+        data.put("title", "Kyanite");
+        data.put("player", player);
+        dictionary = new JSONDictonary(data);
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return dictionary.getBoolean("enabled");
+    }
+
+    @Benchmark
+    public int getInt() {
+        return dictionary.getInt("count");
+    }
+
+    @Benchmark
+    public long getLong() {
+        return dictionary.getLong("score");
+    }
+
+    @Benchmark
+    public float getFloat() {
+        return dictionary.getFloat("speed");
+    }
+
+    @Benchmark
+    public double getDouble() {
+        return dictionary.getDouble("speed");
+    }
+
+    @Benchmark
+    public String getString() {
+        return dictionary.getString("title");
+    }
+
+    @Benchmark
+    public void getNested(Blackhole blackhole) {
+        final Dictionary player = dictionary.getDictionary("player");
+        blackhole.consume(player.getString("name"));
+        blackhole.consume(player.getInt("level"));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.benchmarks;
+
+import com.rubynaxela.kyanite.game.HeadlessRunner;
+import com.rubynaxela.kyanite.game.RenderLayer;
+import com.rubynaxela.kyanite.game.Scene;
+import com.rubynaxela.kyanite.graphics.Drawable;
+import com.rubynaxela.kyanite.graphics.RenderStates;
+import com.rubynaxela.kyanite.graphics.RenderTarget;
+import com.rubynaxela.kyanite.util.Time;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding, removing and reordering the objects of a {@link RenderLayer}, with and without the layer ordering.
+ * The layer is emptied at the end of every benchmark method rather than by an invocation-level fixture, which would
+ * distort the results of operations this short, so the {@code addAll} and {@code updateOrder} scores include clearing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderLayerBenchmark {
+
+    @Param({"1000", "10000"})
+    private int objects;
+    @Param({"LAST_ON_TOP", "LAYERS"})
+    private RenderLayer.OrderingPolicy policy;
+    private Scene scene;
+    private Dummy[] drawables;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        final HeadlessRunner runner = new HeadlessRunner(Time.ms(16));
+        runner.setScene(Scene.empty());
+        scene = runner.getScene();
+        scene.setOrderingPolicy(policy);
+        random = new Random(42);
+        drawables = new Dummy[objects];
+        for (int i = 0; i < objects; i++) drawables[i] = new Dummy(random.nextInt(16));
+    }
+
+    @Benchmark
+    public int addAll() {
+        scene.add(drawables);
+        final int size = scene.size();
+        scene.clear();
+        return size;
+    }
+
+    @Benchmark
+    public int addAndRemoveAll() {
+        scene.add(drawables);
+        for (final Dummy drawable : drawables) scene.remove(drawable);
+        return scene.size();
+    }
+
+    @Benchmark
+    public int updateOrder() {
+        scene.add(drawables);
+        for (final Dummy drawable : drawables) drawable.setLayer(random.nextInt(16));
+        scene.updateOrder();
+        final int size = scene.size();
+        scene.clear();
+        return size;
+    }
+
+    private static final class Dummy implements Drawable {
+
+        private int layer;
+
+        private Dummy(int layer) {
+            this.layer = layer;
+        }
+
+        @Override
+        public void draw(@NotNull RenderTarget target, @NotNull RenderStates states) {
+        }
+
+        @Override
+        public int getLayer() {
+            return layer;
+        }
+
+        @Override
+        public void setLayer(int layer) {
+            this.layer = layer;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.benchmarks;
+
+import com.rubynaxela.kyanite.graphics.CollisionAlgorithm;
+import com.rubynaxela.kyanite.graphics.ConvexShape;
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the shape intersection tests of {@link ConvexShape#intersects} for regular polygons with
+ * the specified number of vertices, overlapping with each other or only with their bounding boxes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeBenchmark {
+
+    @Param({"4", "16", "64"})
+    private int vertices;
+    private ConvexShape shape, overlapping, cornerOnly;
+
+    private static ConvexShape polygon(int vertices, float radius) {
+        final Vector2f[] points = new Vector2f[vertices];
+        for (int i = 0; i < vertices; i++) {
+            final double angle = 2 * Math.PI * i / vertices;
+            points[i] = Vec2.f(radius * Math.cos(angle), radius * Math.sin(angle));
+        }
+        return new ConvexShape(points);
+    }
+
+    @Setup
+    public void setup() {
+        shape = polygon(vertices, 50);
+        overlapping = polygon(vertices, 50);
+        overlapping.setPosition(60, 10);
+        cornerOnly = polygon(vertices, 50);
+        cornerOnly.setPosition(90, 90);
+    }
+
+    @Benchmark
+    public boolean edgesOverlapping() {
+        return shape.intersects(overlapping, CollisionAlgorithm.EDGES);
+    }
+
+    @Benchmark
+    public boolean edgesBoundsOnly() {
+        return shape.intersects(cornerOnly, CollisionAlgorithm.EDGES);
+    }
+
+    @Benchmark
+    public boolean aabb() {
+        return shape.intersects(overlapping, CollisionAlgorithm.AABB);
+    }
+}
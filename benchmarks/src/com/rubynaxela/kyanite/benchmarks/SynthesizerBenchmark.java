@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rubynaxela.kyanite.audio.SoundBuffer;
+import com.rubynaxela.kyanite.audio.synth.Song;
+import com.rubynaxela.kyanite.audio.synth.Synthesizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the synthesis of a sound buffer from a track of notes by {@link Synthesizer#createBuffer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SynthesizerBenchmark {
+
+    private static final String SONG = """
+            {
+              "tempo": 120,
+              "tracks": [
+                {
+                  "oscillator": {"function": "%s", "attack_factor": 0.3, "attack_duration": 40},
+                  "notes": "C4 250 E4 250 G4 250 C5 500 pause 250 G4 250 E4 250 C4 500"
+                }
+              ]
+            }""";
+
+    @Param({"sin", "square"})
+    private String function;
+    private Song.Track track;
+
+    @Setup
+    public void setup() throws Exception {
+        track = new ObjectMapper().readValue(SONG.formatted(function), Song.class).getTracks().get(0);
+    }
+
+    @Benchmark
+    public SoundBuffer createBuffer() {
+        return Synthesizer.createBuffer(track);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.benchmarks;
+
+import com.rubynaxela.kyanite.graphics.Transform;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the combination and inversion of {@link Transform} matrices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+
+    private Transform first, second;
+
+    @Setup
+    public void setup() {
+        first = Transform.rotate(Transform.translate(Transform.IDENTITY, 120, 45), 30);
+        second = Transform.scale(Transform.IDENTITY, 2, 0.5f, 16, 16);
+    }
+
+    @Benchmark
+    public Transform combine() {
+        return Transform.combine(first, second);
+    }
+
+    @Benchmark
+    public Transform getInverse() {
+        return first.getInverse();
+    }
+}
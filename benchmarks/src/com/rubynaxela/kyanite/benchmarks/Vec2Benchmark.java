@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.benchmarks;
+
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
+import com.rubynaxela.kyanite.math.Vector2i;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the vector arithmetic of {@link Vec2}, which is used by the scene loop for every moving entity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vec2Benchmark {
+
+    private Vector2f a, b;
+    private Vector2i c;
+    private float scalar;
+
+    @Setup
+    public void setup() {
+        a = Vec2.f(12.5f, -3.25f);
+        b = Vec2.f(0.75f, 8f);
+        c = Vec2.i(3, 4);
+        scalar = 0.016f;
+    }
+
+    @Benchmark
+    public Vector2f add() {
+        return Vec2.add(a, b);
+    }
+
+    @Benchmark
+    public Vector2f subtract() {
+        return Vec2.subtract(a, b);
+    }
+
+    @Benchmark
+    public Vector2f multiplyByScalar() {
+        return Vec2.multiply(a, scalar);
+    }
+
+    @Benchmark
+    public Vector2f divideMixed() {
+        return Vec2.divide(a, c);
+    }
+
+    @Benchmark
+    public Vector2f movementStep() {
+        return Vec2.add(a, Vec2.multiply(Vec2.add(b, Vec2.f(0, 9.81f * scalar)), scalar));
+    }
+}
@@ -0,0 +1,543 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.graphics.Drawable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The array-backed list of objects of a {@link RenderLayer}. The objects are kept in buckets, one per layer index
+ * (the {@link Drawable#getLayer} value) if the store is layered, or in a single bucket otherwise. Appending an object
+ * is amortized <i>O(1)</i> and stable within its bucket, while {@link #contains} and {@link #remove(Object)} use an
+ * identity index and are <i>O(1)</i> as well. Removed objects leave empty slots that are skipped by the iteration
+ * and compacted lazily, the first time an index-based operation is performed or when too many of them accumulate.
+ * Compacting is not a structural modification, so the open iterators follow the objects they point to instead.
+ */
+final class DrawableStore extends AbstractList<Drawable> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Drawable, Node> index = new IdentityHashMap<>();
+    private Bucket[] buckets = new Bucket[4];
+    private int[] starts = new int[4];
+    private int bucketCount = 0, size = 0, compactions = 0;
+    private boolean layered = false, startsValid = false, hasHoles = false;
+
+    /**
+     * @return whether the objects of this store are bucketed by their layer index
+     */
+    boolean isLayered() {
+        return layered;
+    }
+
+    /**
+     * Sets whether the objects of this store are bucketed by their layer index. Enabling
+     * this option re-buckets the objects, keeping the relative order of objects of the same
+     * layer. Disabling it flattens the buckets into a single one, keeping the current order.
+     *
+     * @param layered {@code true} to bucket the objects by their layer index
+     */
+    void setLayered(boolean layered) {
+        this.layered = layered;
+        rebuild();
+    }
+
+    /**
+     * Re-buckets all the objects of this store, e.g. after their layer indices have been changed.
+     */
+    void rebuild() {
+        final Drawable[] ordered = toArray(new Drawable[0]);
+        clearBuckets();
+        for (final Drawable drawable : ordered) append(drawable);
+        modCount++;
+    }
+
+    /**
+     * @return the number of structural modifications of this store, used to detect concurrent modifications
+     */
+    int modifications() {
+        return modCount;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Drawable && index.containsKey(object);
+    }
+
+    @Override
+    public Drawable get(int i) {
+        final Bucket bucket = locate(i);
+        return bucket.elements[i - starts[bucketIndexOf(bucket)]];
+    }
+
+    @Override
+    public Drawable set(int i, @NotNull Drawable drawable) {
+        final Bucket bucket = locate(i);
+        final int slot = i - starts[bucketIndexOf(bucket)];
+        final Drawable previous = bucket.elements[slot];
+        if (layered && drawable.getLayer() != bucket.layer) {
+            removeAt(bucket, slot);
+            append(drawable);
+            modCount++;
+        } else {
+            unlink(bucket.nodes[slot]);
+            final Node node = link(drawable, bucket, slot);
+            bucket.elements[slot] = drawable;
+            bucket.nodes[slot] = node;
+        }
+        return previous;
+    }
+
+    @Override
+    public boolean add(@NotNull Drawable drawable) {
+        append(drawable);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Inserts the specified object at the specified position. This operation is only supported if
+     * the store is not layered, as otherwise the position of an object is determined by its layer index.
+     *
+     * @param i        the index at which the object is to be inserted
+     * @param drawable the object to be inserted
+     * @throws UnsupportedOperationException if this store is layered
+     */
+    @Override
+    public void add(int i, @NotNull Drawable drawable) {
+        if (layered) throw new UnsupportedOperationException("Inserting at a specified position is not permitted " +
+                                                             "with the LAYERS policy");
+        if (i < 0 || i > size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        compact();
+        final Bucket bucket = bucketCount == 0 ? insertBucket(0, 0) : buckets[0];
+        bucket.ensureCapacity(bucket.end + 1);
+        System.arraycopy(bucket.elements, i, bucket.elements, i + 1, bucket.end - i);
+        System.arraycopy(bucket.nodes, i, bucket.nodes, i + 1, bucket.end - i);
+        bucket.elements[i] = drawable;
+        bucket.nodes[i] = link(drawable, bucket, i);
+        bucket.end++;
+        bucket.live++;
+        for (int j = i + 1; j < bucket.end; j++) bucket.nodes[j].slot = j;
+        size++;
+        startsValid = false;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(@NotNull Collection<? extends Drawable> collection) {
+        if (collection.isEmpty()) return false;
+        for (final Drawable drawable : collection) append(drawable);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Drawable)) return false;
+        Node node = index.get(object);
+        if (node == null) return false;
+        for (Node other = node.next; other != null; other = other.next)
+            if (other.bucket.layer < node.bucket.layer || other.bucket == node.bucket && other.slot < node.slot) node = other;
+        removeAt(node.bucket, node.slot);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Drawable remove(int i) {
+        final Bucket bucket = locate(i);
+        final int slot = i - starts[bucketIndexOf(bucket)];
+        final Drawable previous = bucket.elements[slot];
+        removeAt(bucket, slot);
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public boolean removeIf(@NotNull Predicate<? super Drawable> filter) {
+        final int expectedModCount = modCount;
+        boolean removed = false;
+        for (int b = 0; b < bucketCount; b++) {
+            final Bucket bucket = buckets[b];
+            for (int i = 0; i < bucket.end; i++) {
+                final Drawable drawable = bucket.elements[i];
+                if (drawable != null && filter.test(drawable)) {
+                    if (modCount != expectedModCount) throw new ConcurrentModificationException();
+                    unlink(bucket.nodes[i]);
+                    bucket.elements[i] = null;
+                    bucket.nodes[i] = null;
+                    bucket.live--;
+                    size--;
+                    removed = true;
+                }
+            }
+        }
+        if (removed) {
+            hasHoles = true;
+            compact();
+            modCount++;
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> collection) {
+        return removeIf(collection::contains);
+    }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> collection) {
+        return removeIf(drawable -> !collection.contains(drawable));
+    }
+
+    @Override
+    public void clear() {
+        clearBuckets();
+        modCount++;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        if (!(object instanceof Drawable)) return -1;
+        compact();
+        int result = -1;
+        for (Node node = index.get(object); node != null; node = node.next) {
+            final int position = starts[bucketIndexOf(node.bucket)] + node.slot;
+            if (result == -1 || position < result) result = position;
+        }
+        return result;
+    }
+
+    @Override
+    public int lastIndexOf(Object object) {
+        if (!(object instanceof Drawable)) return -1;
+        compact();
+        int result = -1;
+        for (Node node = index.get(object); node != null; node = node.next)
+            result = Math.max(result, starts[bucketIndexOf(node.bucket)] + node.slot);
+        return result;
+    }
+
+    @Override
+    public void sort(Comparator<? super Drawable> comparator) {
+        final Drawable[] ordered = toArray(new Drawable[0]);
+        Arrays.sort(ordered, comparator);
+        clearBuckets();
+        for (final Drawable drawable : ordered) append(drawable);
+        modCount++;
+    }
+
+    @Override
+    public void forEach(@NotNull Consumer<? super Drawable> action) {
+        final int expectedModCount = modCount;
+        for (int b = 0; b < bucketCount; b++) {
+            final Bucket bucket = buckets[b];
+            final Drawable[] elements = bucket.elements;
+            for (int i = 0, end = bucket.end; i < end; i++) {
+                final Drawable drawable = elements[i];
+                if (drawable != null) {
+                    action.accept(drawable);
+                    if (modCount != expectedModCount) throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public Object @NotNull [] toArray() {
+        return toArray(new Drawable[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    @Override
+    public <T> T @NotNull [] toArray(@NotNull T @NotNull [] array) {
+        final T[] result = array.length >= size ? array : Arrays.copyOf(array, size);
+        int n = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            final Bucket bucket = buckets[b];
+            for (int i = 0; i < bucket.end; i++)
+                if (bucket.elements[i] != null) result[n++] = (T) bucket.elements[i];
+        }
+        if (result.length > size) result[size] = null;
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Drawable> iterator() {
+        return new Itr();
+    }
+
+    private void append(@NotNull Drawable drawable) {
+        final Bucket bucket = bucketFor(layered ? drawable.getLayer() : 0);
+        if (bucket.end == bucket.elements.length && bucket.live < bucket.end - (bucket.end >> 2)) bucket.compact();
+        bucket.ensureCapacity(bucket.end + 1);
+        bucket.elements[bucket.end] = drawable;
+        bucket.nodes[bucket.end] = link(drawable, bucket, bucket.end);
+        bucket.end++;
+        bucket.live++;
+        size++;
+        startsValid = false;
+    }
+
+    private void removeAt(@NotNull Bucket bucket, int slot) {
+        unlink(bucket.nodes[slot]);
+        bucket.elements[slot] = null;
+        bucket.nodes[slot] = null;
+        bucket.live--;
+        size--;
+        startsValid = false;
+        if (bucket.live == 0) removeBucket(bucketIndexOf(bucket));
+        else if (slot == bucket.end - 1) bucket.end--;
+        else hasHoles = true;
+    }
+
+    @NotNull
+    private Node link(@NotNull Drawable drawable, @NotNull Bucket bucket, int slot) {
+        final Node node = new Node(drawable, bucket, slot);
+        final Node head = index.get(drawable);
+        if (head == null) index.put(drawable, node);
+        else {
+            Node last = head;
+            while (last.next != null) last = last.next;
+            last.next = node;
+        }
+        return node;
+    }
+
+    private void unlink(@NotNull Node node) {
+        final Node head = index.get(node.drawable);
+        if (head == node) {
+            if (node.next == null) index.remove(node.drawable);
+            else index.put(node.drawable, node.next);
+        } else {
+            Node previous = head;
+            while (previous.next != node) previous = previous.next;
+            previous.next = node.next;
+        }
+    }
+
+    @NotNull
+    private Bucket locate(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        compact();
+        int low = 0, high = bucketCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= i) low = mid;
+            else high = mid - 1;
+        }
+        return buckets[low];
+    }
+
+    private void compact() {
+        if (hasHoles) {
+            for (int b = bucketCount - 1; b >= 0; b--) {
+                buckets[b].compact();
+                if (buckets[b].live == 0) removeBucket(b);
+            }
+            hasHoles = false;
+            startsValid = false;
+            compactions++;
+        }
+        if (!startsValid) {
+            for (int b = 0, start = 0; b < bucketCount; b++) {
+                starts[b] = start;
+                start += buckets[b].end;
+            }
+            startsValid = true;
+        }
+    }
+
+    @NotNull
+    private Bucket bucketFor(int layer) {
+        int low = 0, high = bucketCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midLayer = buckets[mid].layer;
+            if (midLayer < layer) low = mid + 1;
+            else if (midLayer > layer) high = mid - 1;
+            else return buckets[mid];
+        }
+        return insertBucket(low, layer);
+    }
+
+    private int bucketIndexOf(@NotNull Bucket bucket) {
+        int low = 0, high = bucketCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midLayer = buckets[mid].layer;
+            if (midLayer < bucket.layer) low = mid + 1;
+            else if (midLayer > bucket.layer) high = mid - 1;
+            else return mid;
+        }
+        throw new IllegalStateException("The bucket does not belong to this store");
+    }
+
+    @NotNull
+    private Bucket insertBucket(int position, int layer) {
+        if (bucketCount == buckets.length) {
+            buckets = Arrays.copyOf(buckets, bucketCount * 2);
+            starts = Arrays.copyOf(starts, bucketCount * 2);
+        }
+        System.arraycopy(buckets, position, buckets, position + 1, bucketCount - position);
+        final Bucket bucket = new Bucket(layer);
+        buckets[position] = bucket;
+        bucketCount++;
+        startsValid = false;
+        return bucket;
+    }
+
+    private void removeBucket(int position) {
+        System.arraycopy(buckets, position + 1, buckets, position, bucketCount - position - 1);
+        buckets[--bucketCount] = null;
+        startsValid = false;
+    }
+
+    private void clearBuckets() {
+        Arrays.fill(buckets, 0, bucketCount, null);
+        bucketCount = 0;
+        size = 0;
+        index.clear();
+        hasHoles = false;
+        startsValid = false;
+    }
+
+    private static final class Node {
+
+        private final Drawable drawable;
+        private final Bucket bucket;
+        private int slot;
+        private Node next;
+
+        private Node(@NotNull Drawable drawable, @NotNull Bucket bucket, int slot) {
+            this.drawable = drawable;
+            this.bucket = bucket;
+            this.slot = slot;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final int layer;
+        private Drawable[] elements = new Drawable[INITIAL_CAPACITY];
+        private Node[] nodes = new Node[INITIAL_CAPACITY];
+        private int end = 0, live = 0;
+
+        private Bucket(int layer) {
+            this.layer = layer;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > elements.length) {
+                final int newCapacity = Math.max(capacity, elements.length + (elements.length >> 1));
+                elements = Arrays.copyOf(elements, newCapacity);
+                nodes = Arrays.copyOf(nodes, newCapacity);
+            }
+        }
+
+        private void compact() {
+            if (live == end) return;
+            int n = 0;
+            for (int i = 0; i < end; i++) {
+                if (elements[i] != null) {
+                    elements[n] = elements[i];
+                    nodes[n] = nodes[i];
+                    nodes[n].slot = n;
+                    n++;
+                }
+            }
+            Arrays.fill(elements, n, end, null);
+            Arrays.fill(nodes, n, end, null);
+            end = n;
+        }
+    }
+
+    private final class Itr implements Iterator<Drawable> {
+
+        private int bucket = 0, slot = -1, expectedModCount = modCount, expectedCompactions = compactions;
+        private Node nextNode, lastNode;
+
+        private Itr() {
+            advance();
+        }
+
+        private void advance() {
+            slot++;
+            while (bucket < bucketCount) {
+                final Bucket current = buckets[bucket];
+                while (slot < current.end && current.elements[slot] == null) slot++;
+                if (slot < current.end) {
+                    nextNode = current.nodes[slot];
+                    return;
+                }
+                bucket++;
+                slot = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return bucket < bucketCount;
+        }
+
+        @Override
+        public Drawable next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (bucket >= bucketCount) throw new NoSuchElementException();
+            if (compactions != expectedCompactions) {
+                // the buckets have been compacted by an index-based operation, so the next object might have moved
+                bucket = bucketIndexOf(nextNode.bucket);
+                slot = nextNode.slot;
+                expectedCompactions = compactions;
+            }
+            lastNode = nextNode;
+            advance();
+            return lastNode.drawable;
+        }
+
+        @Override
+        public void remove() {
+            if (lastNode == null) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            final Bucket lastBucket = lastNode.bucket;
+            final int lastSlot = lastNode.slot;
+            unlink(lastNode);
+            lastBucket.elements[lastSlot] = null;
+            lastBucket.nodes[lastSlot] = null;
+            lastBucket.live--;
+            size--;
+            startsValid = false;
+            hasHoles = true;
+            if (lastBucket.live == 0) {
+                removeBucket(bucketIndexOf(lastBucket));
+                bucket--;
+            }
+            lastNode = null;
+            expectedModCount = ++modCount;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.game.assets.AudioHandler;
+import com.rubynaxela.kyanite.window.Window;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the durations of the phases of the most recent frames of the game window loop. The durations are measured in
+ * nanoseconds by the window thread and kept in a ring buffer, which can be read from any thread without locking. Sample
+ * usage:<pre>
+ * final FrameStats.Summary loop = getContext().getFrameStats().getSummary(FrameStats.Phase.SCENE_LOOP);
+ * System.out.println("loop() p99: " + loop.p99() / 1e6 + " ms");</pre>
+ */
+public final class FrameStats {
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final int capacity, slots;
+    private final long[] samples;
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private volatile boolean enabled = true;
+    private boolean frameStarted = false;
+
+    /**
+     * Creates a frame statistics buffer storing the specified number of most recent frames.
+     *
+     * @param capacity the number of frames to be stored
+     */
+    public FrameStats(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be positive");
+        this.capacity = capacity;
+        // one spare slot for the frame that is being recorded
+        this.slots = capacity + 1;
+        this.samples = new long[slots * PHASES.length];
+    }
+
+    /**
+     * @return the number of most recent frames that are stored
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the total number of frames recorded so far
+     */
+    public long getFrameCount() {
+        return publishedFrames.get();
+    }
+
+    /**
+     * @return whether the frame phases are being measured
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether the frame phases are measured. The measurement is enabled by default.
+     *
+     * @param enabled {@code true} to measure the frame phases
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts recording a new frame. This method is called by the window loop and should not be invoked manually.
+     */
+    public void beginFrame() {
+        if (!enabled) return;
+        final int offset = (int) (publishedFrames.get() % slots) * PHASES.length;
+        Arrays.fill(samples, offset, offset + PHASES.length, 0);
+        frameStarted = true;
+    }
+
+    /**
+     * Returns a timestamp to be passed to {@link #record}. This method is used by the window loop.
+     *
+     * @return the current value of {@link System#nanoTime}, or 0 if the measurement is disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time elapsed since the specified timestamp to the duration of the specified phase
+     * in the current frame. This method is used by the window loop and returns a new timestamp,
+     * so that consecutive phases can be measured without calling {@link #start} again.
+     *
+     * @param phase the measured phase
+     * @param start the timestamp obtained from {@link #start} or the previous {@code record} call
+     * @return the current timestamp
+     */
+    public long record(@NotNull Phase phase, long start) {
+        if (!enabled || !frameStarted) return start();
+        final long now = System.nanoTime();
+        samples[(int) (publishedFrames.get() % slots) * PHASES.length + phase.ordinal()] += now - start;
+        return now;
+    }
+
+    /**
+     * Finishes recording the current frame and makes it visible to the readers.
+     * This method is called by the window loop and should not be invoked manually.
+     */
+    public void endFrame() {
+        if (!enabled || !frameStarted) return;
+        frameStarted = false;
+        publishedFrames.lazySet(publishedFrames.get() + 1);
+    }
+
+    /**
+     * Gets the duration of the specified phase in the most recently recorded frame.
+     *
+     * @param phase a frame phase
+     * @return the duration of the phase in nanoseconds, or 0 if no frame has been recorded
+     */
+    public long getLast(@NotNull Phase phase) {
+        final long[] values = collect(phase, 1);
+        return values.length > 0 ? values[0] : 0;
+    }
+
+    /**
+     * Computes the summary of the durations of the specified phase in the stored frames.
+     *
+     * @param phase a frame phase
+     * @return the summary of the durations of the phase
+     */
+    @NotNull
+    public Summary getSummary(@NotNull Phase phase) {
+        return Summary.of(collect(phase, capacity));
+    }
+
+    /**
+     * Computes the summary of the total durations of the measured phases in the stored frames.
+     *
+     * @return the summary of the frame durations
+     */
+    @NotNull
+    public Summary getFrameSummary() {
+        return Summary.of(collect(null, capacity));
+    }
+
+    private long[] collect(Phase phase, int count) {
+        final long end = publishedFrames.get();
+        final long start = Math.max(0, end - Math.min(count, capacity));
+        final long[] values = new long[(int) (end - start)];
+        for (long frame = start; frame < end; frame++) {
+            final int offset = (int) (frame % slots) * PHASES.length;
+            long value = 0;
+            if (phase != null) value = samples[offset + phase.ordinal()];
+            else for (int i = 0; i < PHASES.length; i++) value += samples[offset + i];
+            values[(int) (frame - start)] = value;
+        }
+        // the slots of the oldest frames may have been overwritten by the frames that were being recorded meanwhile
+        final long firstValid = Math.max(start, publishedFrames.get() + 1 - slots);
+        return Arrays.copyOfRange(values, (int) (firstValid - start), values.length);
+    }
+
+    /**
+     * The measured phases of a frame of the game window loop.
+     */
+    public enum Phase {
+
+        /**
+         * Clearing the window.
+         */
+        CLEAR,
+        /**
+         * Polling the window events and dispatching them to the listeners.
+         */
+        HANDLE_EVENTS,
+        /**
+         * Executing the actions scheduled on the scene.
+         */
+        SCHEDULED_ACTIONS,
+        /**
+         * Executing the {@link Scene#loop} method.
+         */
+        SCENE_LOOP,
+        /**
+         * Animating and moving the entities of the scene.
+         */
+        ENTITY_UPDATE,
+        /**
+         * Drawing the scene.
+         */
+        SCENE_DRAW,
+        /**
+         * Updating and drawing the HUD ({@link HUD#refresh}).
+         */
+        HUD_REFRESH,
+        /**
+         * Displaying the frame on the window ({@link Window#display}), including waiting for the framerate limit.
+         */
+        DISPLAY,
+        /**
+         * Releasing the finished sounds ({@link AudioHandler#gc}).
+         */
+        AUDIO_GC
+    }
+
+    /**
+     * The summary of the durations of a frame phase, in nanoseconds.
+     *
+     * @param frames  the number of frames that the summary was computed from
+     * @param min     the shortest duration
+     * @param max     the longest duration
+     * @param average the average duration
+     * @param p95     the 95th percentile of the durations
+     * @param p99     the 99th percentile of the durations
+     */
+    public record Summary(int frames, long min, long max, double average, long p95, long p99) {
+
+        private static Summary of(long[] values) {
+            if (values.length == 0) return new Summary(0, 0, 0, 0, 0, 0);
+            Arrays.sort(values);
+            long sum = 0;
+            for (final long value : values) sum += value;
+            return new Summary(values.length, values[0], values[values.length - 1], (double) sum / values.length,
+                               percentile(values, 0.95), percentile(values, 0.99));
+        }
+
+        private static long percentile(long[] sorted, double fraction) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.lang.reflect.InvocationTargetException;
 /**
  * The game root class. Provides a {@link GameContext} object, which
  * provides a set of references to the basic objects used by the game.
+ * In order to run the game logic without a window, use {@link HeadlessRunner}.
  */
 public abstract class Game {
 
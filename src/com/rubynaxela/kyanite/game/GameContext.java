@@ -41,14 +41,18 @@ public final class GameContext {
     private final AssetsBundle assetsBundle;
     private final AudioHandler audioHandler;
     private final Clock clock;
+    private final FrameStats frameStats;
+    private final LatencyStats latencyStats;
     private final Map<String, Object> resources;
     private Window window;
 
-    GameContext(@NotNull Game gameInstance) {
+    GameContext(@Nullable Game gameInstance) {
         this.gameInstance = gameInstance;
         assetsBundle = new AssetsBundle();
         audioHandler = new AudioHandler(this);
         clock = new Clock(false);
+        frameStats = new FrameStats(600);
+        latencyStats = new LatencyStats();
         resources = new HashMap<>();
     }
 
@@ -59,6 +63,17 @@ public final class GameContext {
         return instance;
     }
 
+    /**
+     * Creates the game context for running scenes without a {@link Game} instance and
+     * a window (see {@link HeadlessRunner}), unless a game context already exists.
+     *
+     * @return reference to the instance of the game context
+     */
+    static GameContext getOrCreateHeadless() {
+        if (instance == null) instance = new GameContext(null);
+        return instance;
+    }
+
     /**
      * Sets the window size and title. This has to be called before the window is used.
      * If this method has been called previously, window initializaion is skipped.
@@ -149,11 +164,33 @@ public final class GameContext {
         return clock;
     }
 
+    /**
+     * Gets the durations of the phases of the most recent frames of the game window loop (the last 600 frames).
+     *
+     * @return reference to the game frame statistics
+     */
+    @NotNull
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    /**
+     * Gets the input-to-photon latencies of the events marked with {@link LatencyStats#markRendered}.
+     *
+     * @return reference to the game latency statistics
+     */
+    @NotNull
+    public LatencyStats getLatencyStats() {
+        return latencyStats;
+    }
+
     /**
      * Stops all sounds, restarts the game clock and re-creates the game window. Does
      * not stop any actions that are not handled by the game loop, e.g. running threads.
      */
     public void restartGame() {
+        if (gameInstance == null || window == null)
+            throw new IllegalStateException("A headless game context cannot be restarted");
         final Window oldWindow = window;
         final Vector2i oldWindowSize = oldWindow.getSize();
         window = new Window(new VideoMode(oldWindowSize.x, oldWindowSize.y), oldWindow.getTitle(), audioHandler);
@@ -70,7 +70,7 @@ public abstract non-sealed class HUD extends RenderLayer {
     /**
      * Draws every object on the window. This method is automatically executed every frame by the window it belongs
      * to and should not be invoked manually. If this HUD contains {@link AnimatedEntity}s or {@link AnimatedEntity}s,
-     * their animation methods will be called with the currently set {@link Scene}'s {@code getDeltaTime()} method.
+     * their animation methods will be called with the currently set {@link Scene}'s {@code getFrameDeltaTime()} method.
      *
      * @param window the window that the scene has to be displayed on
      */
@@ -80,8 +80,9 @@ public abstract non-sealed class HUD extends RenderLayer {
         if (background != null) window.draw(background);
         else window.draw(solidBackground);
         runScheduledActions();
-        final Time deltaTime = window.getScene().getDeltaTime(), elapsedTime = getContext().getClock().getTime();
+        final Time deltaTime = window.getScene().getFrameDeltaTime(), elapsedTime = window.getScene().getElapsedTime();
         final float dt = deltaTime.asSeconds();
+        beginDraw(window);
         try {
             forEach(object -> {
                 if (object instanceof final GravityAffected entity)
@@ -91,8 +92,9 @@ public abstract non-sealed class HUD extends RenderLayer {
                 if (object instanceof final CompoundEntity entity)
                     for (final Drawable component : entity.getComponents()) updateAnimatedTexture(component);
                 if (object instanceof final MovingEntity entity) entity.move(Vec2.multiply(entity.getVelocity(), dt));
-                window.draw(object);
+                drawObject(window, object);
             });
+            endDraw(window);
         } catch (ConcurrentModificationException e) {
             throw new ConcurrentModificationException("HUD contents cannot be modified during a draw iteration." +
                                                       " In order to add or remove an object, use the" +
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.util.Time;
+import com.rubynaxela.kyanite.window.Window;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the logic of a {@link Scene} without a {@link Window}, e.g. for server-side simulation, automated tests or
+ * benchmarks. Every tick of the runner performs the same update as a frame of the window loop (the scheduled actions,
+ * the {@link Scene#loop} method and the entity animation), but nothing is drawn and the time of the scene is simulated:
+ * it starts at zero and is advanced by the tick duration every tick, regardless of the real time. The ticks are
+ * performed as fast as possible, unless a simulation speed is set. Sample usage:<pre>
+ * final HeadlessRunner runner = new HeadlessRunner(Time.ms(16));
+ * runner.setScene(new LevelScene());
+ * runner.runFor(Time.s(600));</pre>
+ * If no game is running, the runner creates a game context without a window, so it has to be created before
+ * any scene. The durations of the phases of every tick are recorded in the {@link GameContext#getFrameStats}.
+ */
+public final class HeadlessRunner {
+
+    private final GameContext context = GameContext.getOrCreateHeadless();
+    private final Time tickDuration;
+    private Scene scene;
+    private long tickCount = 0;
+    private float speed = 0;
+
+    /**
+     * Creates a headless runner with the specified duration of a tick.
+     *
+     * @param tickDuration the simulated time between two consecutive ticks
+     */
+    public HeadlessRunner(@NotNull Time tickDuration) {
+        if (tickDuration.asMicroseconds() <= 0) throw new IllegalArgumentException("The tick duration must be positive");
+        this.tickDuration = tickDuration;
+    }
+
+    /**
+     * @return the reference to the game context
+     */
+    public GameContext getContext() {
+        return context;
+    }
+
+    /**
+     * @param <T> the current scene class
+     * @return reference to the scene run by this runner
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Scene> T getScene() {
+        return (T) scene;
+    }
+
+    /**
+     * Changes the scene run by this runner and initializes it (calls its {@code init()} method). The scene must not
+     * have been initialized before. The simulated time of the scene starts at zero.
+     *
+     * @param scene the scene to be run
+     * @return the reference to this runner
+     */
+    public HeadlessRunner setScene(@NotNull Scene scene) {
+        scene.makeHeadless();
+        this.scene = scene;
+        scene.fullInit();
+        return this;
+    }
+
+    /**
+     * @return the simulated time between two consecutive ticks
+     */
+    public Time getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * @return the number of ticks performed by this runner
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * @return the ratio of the simulated time to the real time, or 0 if the ticks are performed as fast as possible
+     */
+    public float getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Sets the ratio of the simulated time to the real time. For example, with the speed of 1 a tick is performed
+     * every {@code tickDuration} of real time, and with the speed of 10 the simulation runs ten times faster than in
+     * real time. If the ticks take longer than that, the runner performs them as fast as it can. The default value is
+     * 0, which means that the ticks are performed as fast as possible.
+     *
+     * @param speed the ratio of the simulated time to the real time, or 0 for no limit
+     */
+    public void setSpeed(float speed) {
+        if (!(speed >= 0)) throw new IllegalArgumentException("The speed must not be negative");
+        this.speed = speed;
+    }
+
+    /**
+     * Performs a single tick of the scene.
+     */
+    public void step() {
+        if (scene == null) throw new IllegalStateException("No scene has been set");
+        final FrameStats stats = context.getFrameStats();
+        stats.beginFrame();
+        scene.simulate(tickDuration);
+        stats.endFrame();
+        tickCount++;
+    }
+
+    /**
+     * Performs the specified number of ticks.
+     *
+     * @param ticks the number of ticks to be performed
+     */
+    public void run(long ticks) {
+        runWhile(new BooleanSupplier() {
+            private long remaining = ticks;
+
+            @Override
+            public boolean getAsBoolean() {
+                return remaining-- > 0;
+            }
+        });
+    }
+
+    /**
+     * Performs as many ticks as needed to advance the scene by the specified simulated time.
+     *
+     * @param time the simulated time to advance the scene by
+     */
+    public void runFor(@NotNull Time time) {
+        run(time.asMicroseconds() / tickDuration.asMicroseconds());
+    }
+
+    /**
+     * Performs ticks until the specified condition is met. The condition is checked before every tick.
+     *
+     * @param condition the condition ending the simulation
+     */
+    public void runUntil(@NotNull BooleanSupplier condition) {
+        runWhile(() -> !condition.getAsBoolean());
+    }
+
+    private void runWhile(@NotNull BooleanSupplier condition) {
+        final long start = System.nanoTime(), tickNanos = tickDuration.asMicroseconds() * 1000;
+        long ticks = 0;
+        while (condition.getAsBoolean()) {
+            if (speed > 0) {
+                final long delay = start + (long) (ticks * tickNanos / speed) - System.nanoTime();
+                if (delay > 0) LockSupport.parkNanos(delay);
+            }
+            step();
+            ticks++;
+        }
+    }
+}
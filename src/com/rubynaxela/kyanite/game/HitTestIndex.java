@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.game.entities.CompoundEntity;
+import com.rubynaxela.kyanite.game.entities.MouseActionListener;
+import com.rubynaxela.kyanite.graphics.BoundsObject;
+import com.rubynaxela.kyanite.graphics.Drawable;
+import com.rubynaxela.kyanite.graphics.Transform;
+import com.rubynaxela.kyanite.math.FloatRect;
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the global bounds of the {@link MouseActionListener}s of a render layer, including the
+ * components of (nested) {@link CompoundEntity}s. The entries are numbered in the drawing order, so the topmost
+ * listener under a point is the candidate with the highest number that accepts the point.
+ */
+final class HitTestIndex {
+
+    private static final int MAX_CELLS_PER_ENTRY = 64;
+
+    private MouseActionListener[] listeners = new MouseActionListener[16];
+    private Transform[] inverseTransforms = new Transform[16];
+    private float[] bounds = new float[64];
+    private int count = 0;
+    private int[] cellStarts = new int[1], cellEntries = new int[0], unbounded = new int[0];
+    private int unboundedCount = 0, columns = 0, rows = 0;
+    private float gridLeft, gridTop, cellWidth, cellHeight;
+
+    /**
+     * Rebuilds the index from the specified objects, given in the drawing order.
+     *
+     * @param objects the objects of the render layer
+     */
+    void rebuild(@NotNull Iterable<Drawable> objects) {
+        Arrays.fill(listeners, 0, count, null);
+        Arrays.fill(inverseTransforms, 0, count, null);
+        count = 0;
+        for (final Drawable object : objects) collect(object, null);
+        buildGrid();
+    }
+
+    /**
+     * Finds the topmost listener that contains the specified point.
+     *
+     * @param point a point in the coordinates of the render layer
+     * @return the topmost listener for which {@link MouseActionListener#isCursorInside} returned {@code true}
+     * (with the point in the local coordinates of its parent entity), or {@code null} if there is none
+     */
+    @Nullable
+    MouseActionListener find(@NotNull Vector2f point) {
+        int cellFrom = 0, cellTo = 0;
+        if (columns > 0) {
+            final int column = (int) Math.floor((point.x - gridLeft) / cellWidth);
+            final int row = (int) Math.floor((point.y - gridTop) / cellHeight);
+            if (column >= 0 && column < columns && row >= 0 && row < rows) {
+                final int cell = row * columns + column;
+                cellFrom = cellStarts[cell];
+                cellTo = cellStarts[cell + 1];
+            }
+        }
+        int i = cellTo - 1, j = unboundedCount - 1;
+        while (i >= cellFrom || j >= 0) {
+            final int entry = j < 0 || (i >= cellFrom && cellEntries[i] > unbounded[j]) ? cellEntries[i--] : unbounded[j--];
+            if (accepts(entry, point)) return listeners[entry];
+        }
+        return null;
+    }
+
+    private boolean accepts(int entry, @NotNull Vector2f point) {
+        final int b = 4 * entry;
+        if (bounds[b] <= bounds[b + 2] &&
+            (point.x < bounds[b] || point.x > bounds[b + 2] || point.y < bounds[b + 1] || point.y > bounds[b + 3]))
+            return false;
+        final Transform inverse = inverseTransforms[entry];
+        return listeners[entry].isCursorInside(Vec2.i(inverse != null ? inverse.transformPoint(point) : point));
+    }
+
+    private void collect(@NotNull Drawable object, @Nullable Transform parentTransform) {
+        if (object instanceof final MouseActionListener listener) {
+            FloatRect rect = object instanceof final BoundsObject boundsObject ? boundsObject.getGlobalBounds() : null;
+            if (rect != null && parentTransform != null) rect = parentTransform.transformRect(rect);
+            add(listener, rect, parentTransform != null ? parentTransform.getInverse() : null);
+        }
+        if (object instanceof final CompoundEntity entity) {
+            final Transform transform = parentTransform != null
+                                        ? Transform.combine(parentTransform, entity.getTransform())
+                                        : entity.getTransform();
+            for (final Drawable component : entity.getComponents()) collect(component, transform);
+        }
+    }
+
+    private void add(@NotNull MouseActionListener listener, @Nullable FloatRect rect, @Nullable Transform inverse) {
+        if (count == listeners.length) {
+            listeners = Arrays.copyOf(listeners, count * 2);
+            inverseTransforms = Arrays.copyOf(inverseTransforms, count * 2);
+            bounds = Arrays.copyOf(bounds, count * 8);
+        }
+        listeners[count] = listener;
+        inverseTransforms[count] = inverse;
+        final int b = 4 * count;
+        if (rect != null) {
+            bounds[b] = Math.min(rect.left, rect.right);
+            bounds[b + 1] = Math.min(rect.top, rect.bottom);
+            bounds[b + 2] = Math.max(rect.left, rect.right);
+            bounds[b + 3] = Math.max(rect.top, rect.bottom);
+        } else {
+            // the listener is tested for every point
+            bounds[b] = 1;
+            bounds[b + 2] = 0;
+        }
+        count++;
+    }
+
+    private void buildGrid() {
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY,
+                right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        int bounded = 0;
+        for (int e = 0; e < count; e++) {
+            final int b = 4 * e;
+            if (bounds[b] > bounds[b + 2]) continue;
+            left = Math.min(left, bounds[b]);
+            top = Math.min(top, bounds[b + 1]);
+            right = Math.max(right, bounds[b + 2]);
+            bottom = Math.max(bottom, bounds[b + 3]);
+            bounded++;
+        }
+        if (bounded > 0) {
+            final int side = Math.max(1, Math.min(256, (int) Math.sqrt(bounded)));
+            columns = rows = side;
+            gridLeft = left;
+            gridTop = top;
+            cellWidth = Math.max((right - left) / side, Float.MIN_NORMAL);
+            cellHeight = Math.max((bottom - top) / side, Float.MIN_NORMAL);
+        } else columns = rows = 0;
+        final int cells = columns * rows;
+        if (cellStarts.length < cells + 1) cellStarts = new int[cells + 1];
+        Arrays.fill(cellStarts, 0, cells + 1, 0);
+        if (unbounded.length < count) unbounded = new int[count];
+        unboundedCount = 0;
+        // first pass: count the entries of every cell, second pass: fill the cells in the drawing order
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                for (int c = 0; c < cells; c++) cellStarts[c + 1] += cellStarts[c];
+                if (cellEntries.length < cellStarts[cells]) cellEntries = new int[cellStarts[cells]];
+                System.arraycopy(cellStarts, 0, cellStarts, 1, cells);
+                cellStarts[0] = 0;
+            }
+            for (int e = 0; e < count; e++) {
+                final int b = 4 * e;
+                if (bounds[b] > bounds[b + 2]) {
+                    if (pass == 0) unbounded[unboundedCount++] = e;
+                    continue;
+                }
+                final int c0 = cell(bounds[b], gridLeft, cellWidth, columns),
+                        c1 = cell(bounds[b + 2], gridLeft, cellWidth, columns),
+                        r0 = cell(bounds[b + 1], gridTop, cellHeight, rows),
+                        r1 = cell(bounds[b + 3], gridTop, cellHeight, rows);
+                if ((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS_PER_ENTRY) {
+                    if (pass == 0) unbounded[unboundedCount++] = e;
+                    continue;
+                }
+                for (int r = r0; r <= r1; r++)
+                    for (int c = c0; c <= c1; c++) {
+                        final int cell = r * columns + c;
+                        if (pass == 0) cellStarts[cell + 1]++;
+                        else cellEntries[cellStarts[cell + 1]++] = e;
+                    }
+            }
+        }
+    }
+
+    private static int cell(float coordinate, float origin, float cellSize, int cells) {
+        return Math.max(0, Math.min(cells - 1, (int) ((coordinate - origin) / cellSize)));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.window.Window;
+import com.rubynaxela.kyanite.window.event.Event;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Measures the input-to-photon latency, i.e. the time from polling an input event from the window until the frame
+ * reflecting the response to it has been displayed. The game code marks the event whose response has been drawn in
+ * the current frame with {@link #markRendered}, and the window loop records the time from polling the event to the
+ * end of the following {@link Window#display} call in a histogram. Sample usage:<pre>
+ * public void keyPressed(KeyEvent event) {
+ *     player.jump();
+ *     getContext().getLatencyStats().markRendered(event);
+ * }
+ * ...
+ * final LatencyStats.Summary latency = getContext().getLatencyStats().getSummary();
+ * System.out.println("input latency p99: " + latency.p99() / 1e6 + " ms");</pre>
+ * The histogram buckets are {@value #BUCKET_WIDTH} ns wide, up to {@value #BUCKET_COUNT} buckets; longer latencies
+ * are counted in the last bucket, so their exact values are only reflected by the maximum and the average.
+ */
+public final class LatencyStats {
+
+    /**
+     * The width of a histogram bucket, in nanoseconds.
+     */
+    public static final long BUCKET_WIDTH = 100000;
+    /**
+     * The number of the histogram buckets.
+     */
+    public static final int BUCKET_COUNT = 5000;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long[] pending = new long[16];
+    private int pendingCount = 0;
+    private long count = 0, sum = 0, min = Long.MAX_VALUE, max = 0;
+
+    /**
+     * Marks the response to the specified event as drawn in the current frame. The latency is recorded when the frame
+     * is displayed. If this method is called for several events in a frame, a latency is recorded for each of them.
+     *
+     * @param event an event polled from the window
+     */
+    public void markRendered(@NotNull Event event) {
+        markRendered(event.timestamp);
+    }
+
+    /**
+     * Marks the response to an input received at the specified moment as drawn in the current frame.
+     *
+     * @param timestamp the value of {@link System#nanoTime} at the moment the input was received
+     */
+    public synchronized void markRendered(long timestamp) {
+        if (pendingCount == pending.length) pending = Arrays.copyOf(pending, pendingCount * 2);
+        pending[pendingCount++] = timestamp;
+    }
+
+    /**
+     * Records the latencies of the events marked as rendered in the frame that has just been displayed.
+     * This method is called by the window loop after displaying a frame and should not be invoked manually.
+     */
+    public synchronized void framePresented() {
+        if (pendingCount == 0) return;
+        final long now = System.nanoTime();
+        for (int i = 0; i < pendingCount; i++) {
+            final long latency = Math.max(0, now - pending[i]);
+            buckets[(int) Math.min(BUCKET_COUNT - 1, latency / BUCKET_WIDTH)]++;
+            count++;
+            sum += latency;
+            min = Math.min(min, latency);
+            max = Math.max(max, latency);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * @return the number of the recorded latencies
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return a copy of the histogram, in which the element {@code i} is the number
+     * of latencies between {@code i * BUCKET_WIDTH} and {@code (i + 1) * BUCKET_WIDTH}
+     */
+    public synchronized long[] getHistogram() {
+        return buckets.clone();
+    }
+
+    /**
+     * Estimates the specified percentile of the recorded latencies, with the precision of the bucket width.
+     *
+     * @param fraction the percentile, between 0 and 1 (e.g. 0.99 for the 99th percentile)
+     * @return the upper bound of the bucket containing the percentile (but not more than the maximum latency),
+     * in nanoseconds, or 0 if no latency has been recorded
+     */
+    public synchronized long getPercentile(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) throw new IllegalArgumentException("The fraction must be between 0 and 1");
+        if (count == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return Math.min(max, (i + 1) * BUCKET_WIDTH);
+        }
+        return max;
+    }
+
+    /**
+     * Computes the summary of the recorded latencies.
+     *
+     * @return the summary of the latencies
+     */
+    @NotNull
+    public synchronized Summary getSummary() {
+        if (count == 0) return new Summary(0, 0, 0, 0, 0, 0, 0);
+        return new Summary(count, min, max, (double) sum / count,
+                           getPercentile(0.5), getPercentile(0.95), getPercentile(0.99));
+    }
+
+    /**
+     * Removes all the recorded latencies and the events marked as rendered in the current frame.
+     */
+    public synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        pendingCount = 0;
+        count = sum = max = 0;
+        min = Long.MAX_VALUE;
+    }
+
+    /**
+     * The summary of the recorded input-to-photon latencies, in nanoseconds.
+     *
+     * @param samples the number of the recorded latencies
+     * @param min     the shortest latency
+     * @param max     the longest latency
+     * @param average the average latency
+     * @param p50     the median of the latencies
+     * @param p95     the 95th percentile of the latencies
+     * @param p99     the 99th percentile of the latencies
+     */
+    public record Summary(long samples, long min, long max, double average, long p50, long p95, long p99) {
+    }
+}
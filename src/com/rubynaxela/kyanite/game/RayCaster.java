@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.graphics.Drawable;
+import com.rubynaxela.kyanite.graphics.Shape;
+import com.rubynaxela.kyanite.math.Vector2f;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Collects the hits of a cast through the spatial index of a render layer. The hits of rays on {@link Shape}s are
+ * refined using the polygons of the shapes, while the other objects (and all the objects hit by box casts) are only
+ * tested using their global bounds. An instance is reused by the casts of a render layer, so that casting a ray that
+ * only needs to find the closest hit or any hit does not create any objects other than the result.
+ */
+final class RayCaster implements SpatialHash.CastVisitor {
+
+    enum Mode {CLOSEST, ALL, ANY}
+
+    private final float[] normal = new float[2];
+    private Mode mode;
+    private Predicate<? super Drawable> filter;
+    private boolean box;
+    private float originX, originY, directionX, directionY, offsetX, offsetY;
+    private Drawable closest;
+    private float closestFraction, closestNormalX, closestNormalY;
+    private List<RaycastHit> hits;
+
+    /**
+     * Casts a ray or a box through the specified spatial index. The result is then read
+     * using {@link #getClosest} or {@link #getHits}, depending on the mode.
+     *
+     * @param originX the x coordinate of the origin of the ray or the center of the box
+     * @param originY the y coordinate of the origin of the ray or the center of the box
+     * @param offsetX the horizontal distance from the reported position of the hits to the origin
+     * @param offsetY the vertical distance from the reported position of the hits to the origin
+     * @return {@code true} if anything has been hit
+     */
+    boolean cast(@NotNull SpatialHash index, @NotNull Mode mode, float originX, float originY, float directionX,
+                 float directionY, float halfWidth, float halfHeight, float offsetX, float offsetY,
+                 @Nullable Predicate<? super Drawable> filter) {
+        this.mode = mode;
+        this.filter = filter;
+        this.originX = originX;
+        this.originY = originY;
+        this.directionX = directionX;
+        this.directionY = directionY;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        box = halfWidth > 0 || halfHeight > 0;
+        closest = null;
+        hits = mode == Mode.ALL ? new ArrayList<>() : null;
+        try {
+            index.cast(originX, originY, directionX, directionY, halfWidth, halfHeight, 1, this);
+        } finally {
+            this.filter = null;
+        }
+        return mode == Mode.ALL ? !hits.isEmpty() : closest != null;
+    }
+
+    /**
+     * @return the closest hit found by the last cast in the {@link Mode#CLOSEST} mode, or {@code null} if none
+     */
+    @Nullable
+    RaycastHit getClosest() {
+        if (closest == null) return null;
+        final RaycastHit hit = createHit(closest, closestFraction, closestNormalX, closestNormalY);
+        closest = null;
+        return hit;
+    }
+
+    /**
+     * @return the hits found by the last cast in the {@link Mode#ALL} mode, sorted by their distance
+     */
+    @NotNull
+    List<RaycastHit> getHits() {
+        final List<RaycastHit> result = hits;
+        hits = null;
+        result.sort(Comparator.comparingDouble(RaycastHit::fraction));
+        return result;
+    }
+
+    @Override
+    public float visit(@NotNull Drawable object, float entry, float normalX, float normalY, float limit) {
+        if (filter != null && !filter.test(object)) return limit;
+        if (!box && object instanceof final Shape shape) {
+            entry = shape.castRay(originX, originY, directionX, directionY, normal);
+            if (!(entry <= limit)) return limit;
+            normalX = normal[0];
+            normalY = normal[1];
+        }
+        // the normal of a cast starting inside the object is undefined
+        if (entry == 0) normalX = normalY = 0;
+        switch (mode) {
+            case CLOSEST -> {
+                if (closest != null && entry >= closestFraction) return limit;
+                closest = object;
+                closestFraction = entry;
+                closestNormalX = normalX;
+                closestNormalY = normalY;
+                return entry;
+            }
+            case ALL -> {
+                hits.add(createHit(object, entry, normalX, normalY));
+                return limit;
+            }
+            default -> {
+                closest = object;
+                return -1;
+            }
+        }
+    }
+
+    @NotNull
+    private RaycastHit createHit(@NotNull Drawable object, float fraction, float normalX, float normalY) {
+        return new RaycastHit(object, fraction, new Vector2f(originX + directionX * fraction - offsetX,
+                                                             originY + directionY * fraction - offsetY),
+                              new Vector2f(normalX, normalY));
+    }
+}
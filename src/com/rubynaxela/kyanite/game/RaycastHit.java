@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.graphics.Drawable;
+import com.rubynaxela.kyanite.math.Vector2f;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A hit found by a raycast or a box cast against the objects of a {@link RenderLayer}.
+ *
+ * @param object   the hit object
+ * @param fraction the fraction of the cast segment (or of the displacement of the box) traveled before the hit,
+ *                 between 0 and 1, where 0 means that the ray starts inside the object or the box overlaps it
+ * @param position the point where the ray enters the object or, for box casts, the position
+ *                 (i.e. the top left corner) of the box at the moment of contact
+ * @param normal   the unit normal of the hit surface, pointing towards the origin of the cast, or
+ *                 a zero vector if the cast starts inside the object
+ * @see RenderLayer#raycast(Vector2f, Vector2f)
+ */
+public record RaycastHit(@NotNull Drawable object, float fraction, @NotNull Vector2f position, @NotNull Vector2f normal) {
+}
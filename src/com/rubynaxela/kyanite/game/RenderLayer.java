@@ -14,12 +14,19 @@
 
 package com.rubynaxela.kyanite.game;
 
+import com.rubynaxela.kyanite.game.entities.CompoundEntity;
+import com.rubynaxela.kyanite.game.entities.MouseActionListener;
 import com.rubynaxela.kyanite.graphics.*;
+import com.rubynaxela.kyanite.math.FloatRect;
 import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
 import com.rubynaxela.kyanite.window.Window;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -34,11 +41,12 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
      * The game context.
      */
     protected final GameContext context = GameContext.getInstance();
+    final DrawableStore store = new DrawableStore();
     /**
      * The list of objects on this render layer.
      */
-    protected final List<Drawable> drawables = new DrawablesList();
-    private final Queue<Consumer<? super RenderLayer>> scheduledActions = new LinkedList<>();
+    protected final List<Drawable> drawables = store;
+    private final Queue<Consumer<? super RenderLayer>> scheduledActions = new ConcurrentLinkedQueue<>();
     /**
      * The background color of this render layer.
      */
@@ -53,6 +61,17 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
     protected boolean ready = false;
     private Texture backgroundTexture;
     private OrderingPolicy orderingPolicy = OrderingPolicy.LAST_ON_TOP;
+    private boolean cullingEnabled = false;
+    private FloatRect visibleArea = null;
+    private int drawnCount = 0, culledCount = 0;
+    private final HitTestIndex hitTestIndex = new HitTestIndex();
+    private boolean hitTestIndexStatic = false, hitTestIndexValid = false;
+    private int hitTestModifications, frame = 0, hitTestFrame;
+    private SpatialHash spatialIndex = null;
+    private float spatialIndexCellSize = 64;
+    private int spatialIndexModifications, spatialIndexFrame;
+    private final RayCaster rayCaster = new RayCaster();
+    private RenderQueue renderQueue = null;
 
     RenderLayer() {
     }
@@ -62,6 +81,26 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
             sceneObject.updateAnimatedTexture();
     }
 
+    /**
+     * Computes the axis-aligned bounding box of the area of the world visible through the specified view, taking its
+     * center, size and rotation into account. If the viewport of the view is empty, nothing is visible through it.
+     *
+     * @param view a view
+     * @return the bounding box of the visible area, or {@code null} if nothing is visible through the view
+     */
+    @Nullable
+    static FloatRect computeVisibleArea(@NotNull ConstView view) {
+        final FloatRect viewport = view.getViewport();
+        if (viewport.width == 0 || viewport.height == 0) return null;
+        final Vector2f center = view.getCenter(), size = view.getSize();
+        final double angle = Math.toRadians(view.getRotation());
+        final float cos = (float) Math.abs(Math.cos(angle)), sin = (float) Math.abs(Math.sin(angle));
+        final float width = Math.abs(size.x), height = Math.abs(size.y);
+        final float halfWidth = (width * cos + height * sin) / 2, halfHeight = (width * sin + height * cos) / 2;
+        return FloatRect.fromCoordinates(center.x - halfWidth, center.y - halfHeight,
+                                         center.x + halfWidth, center.y + halfHeight);
+    }
+
     /**
      * This method is executed when this render layer is assigned to a window.
      */
@@ -191,6 +230,14 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
         return drawables.isEmpty();
     }
 
+    /**
+     * @return the number of structural modifications of this render layer (e.g. adding or removing objects),
+     * which changes every time the contents of this render layer change
+     */
+    public int getModificationCount() {
+        return store.modifications();
+    }
+
     /**
      * Returns {@code true} if this render layer contains the specified object.
      *
@@ -208,7 +255,8 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
      * @return {@code true} if this list contains all the elements in the specified collection
      */
     public boolean containsAll(@NotNull Collection<Drawable> collection) {
-        return new HashSet<>(drawables).containsAll(collection);
+        for (final Drawable object : collection) if (!drawables.contains(object)) return false;
+        return true;
     }
 
     /**
@@ -242,8 +290,8 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
     }
 
     /**
-     * Schedules an object to add to this render layer. All scheduled
-     * objects will be added before the nearest loop/draw iteration.
+     * Schedules an object to add to this render layer. All scheduled objects will be added before the
+     * nearest loop/draw iteration. This method can be safely called from any thread.
      *
      * @param object an object to add to this scene
      */
@@ -273,8 +321,8 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
     }
 
     /**
-     * Schedules an object to remove from this render layer. All scheduled
-     * objects will be removed before the nearest loop/draw iteration.
+     * Schedules an object to remove from this render layer. All scheduled objects will be removed
+     * before the nearest loop/draw iteration. This method can be safely called from any thread.
      *
      * @param object an object to add to this scene
      */
@@ -311,8 +359,8 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
     }
 
     /**
-     * Schedules a consumer action to be executed with this render layer as the parameter.
-     * All scheduled actions will be executed before the nearest loop/draw iteration.
+     * Schedules a consumer action to be executed with this render layer as the parameter. All scheduled actions
+     * will be executed before the nearest loop/draw iteration. This method can be safely called from any thread.
      *
      * @param action an action to be scheduled
      */
@@ -366,8 +414,484 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
      * layer. Calling it manually might cause a {@link ConcurrentModificationException}.
      */
     protected void runScheduledActions() {
-        scheduledActions.forEach(change -> change.accept(this));
-        scheduledActions.clear();
+        for (int n = scheduledActions.size(); n > 0; n--) {
+            final Consumer<? super RenderLayer> action = scheduledActions.poll();
+            if (action == null) break;
+            action.accept(this);
+        }
+    }
+
+    /**
+     * @return whether objects outside the area visible through the window view are skipped when drawing this render layer
+     */
+    public boolean isCullingEnabled() {
+        return cullingEnabled;
+    }
+
+    /**
+     * Sets whether objects outside the area visible through the window view are skipped when drawing this render layer.
+     * Only objects that implement {@link BoundsObject} can be skipped, using their global bounds, which are tested
+     * against the bounding box of the visible area. Other objects, for instance {@link CompoundEntity}s, are always
+     * drawn. The objects are still animated and moved by the loop regardless of whether they are visible.
+     *
+     * @param cullingEnabled {@code true} to skip drawing the objects that are outside the visible area
+     */
+    public void setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+    }
+
+    /**
+     * @return the number of objects of this render layer that were drawn in the last frame
+     */
+    public int getDrawnCount() {
+        return drawnCount;
+    }
+
+    /**
+     * @return the number of objects of this render layer that were skipped in the last frame
+     * because they were outside the visible area (always 0 if culling is disabled)
+     * @see #setCullingEnabled
+     */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * @return whether the objects of this render layer are reordered before drawing to save texture switches
+     */
+    public boolean isRenderQueueEnabled() {
+        return renderQueue != null;
+    }
+
+    /**
+     * Sets whether the objects of this render layer are reordered before drawing to save texture switches. If enabled,
+     * the objects drawn in a frame are collected and then drawn grouped by their textures, but an object is never moved
+     * before the objects it overlaps, so the contents look the same as if they were drawn in their original order.
+     * The objects are still drawn in the order of their layers, and the objects that do not implement
+     * {@link BoundsObject} keep their position relative to all the other objects. This pays off mostly when
+     * many textured objects are scattered over a large area with their textures interleaved.
+     *
+     * @param renderQueueEnabled {@code true} to reorder the objects before drawing them
+     * @see #getStateChangesSaved
+     */
+    public void setRenderQueueEnabled(boolean renderQueueEnabled) {
+        if (renderQueueEnabled == isRenderQueueEnabled()) return;
+        renderQueue = renderQueueEnabled ? new RenderQueue() : null;
+    }
+
+    /**
+     * @return the number of texture switches needed to draw the last frame of this render
+     * layer (always 0 if the render queue is disabled)
+     * @see #setRenderQueueEnabled
+     */
+    public int getStateChangeCount() {
+        return renderQueue != null ? renderQueue.getStateChanges() : 0;
+    }
+
+    /**
+     * @return the number of texture switches saved by reordering the objects in the last
+     * frame of this render layer (always 0 if the render queue is disabled)
+     * @see #setRenderQueueEnabled
+     */
+    public int getStateChangesSaved() {
+        return renderQueue != null ? renderQueue.getStateChangesSaved() : 0;
+    }
+
+    /**
+     * Finds the topmost {@link MouseActionListener} of this render layer whose {@link MouseActionListener#isCursorInside}
+     * method accepts the specified point, i.e. the one that should receive a mouse action at this point. The components
+     * of {@link CompoundEntity}s are searched as well, at any nesting level, and they are given the point in the local
+     * coordinates of their parent entity. The listeners are looked up in a spatial index over their global bounds, so
+     * only the listeners whose bounds contain the point are tested. Listeners that do not implement
+     * {@link BoundsObject} are always tested.
+     *
+     * @param point a point in the coordinates of this render layer (i.e. mapped through the window view)
+     * @return the topmost listener at the specified point, or {@code null} if there is none
+     * @see #setHitTestIndexStatic
+     */
+    @Nullable
+    public MouseActionListener findMouseActionListener(@NotNull Vector2f point) {
+        if (!hitTestIndexValid || hitTestModifications != store.modifications() ||
+            (!hitTestIndexStatic && hitTestFrame != frame)) {
+            hitTestIndex.rebuild(store);
+            hitTestIndexValid = true;
+            hitTestModifications = store.modifications();
+            hitTestFrame = frame;
+        }
+        return hitTestIndex.find(point);
+    }
+
+    /**
+     * @return whether the hit-test index of this render layer is only rebuilt when the layer contents change
+     */
+    public boolean isHitTestIndexStatic() {
+        return hitTestIndexStatic;
+    }
+
+    /**
+     * Sets whether the hit-test index used by {@link #findMouseActionListener} is only rebuilt when objects are added
+     * to or removed from this render layer. By default, the index is also rebuilt once per frame, when it is first
+     * used, as the objects might have moved. If the mouse action listeners of this layer (e.g. the tiles of an
+     * inventory) are stationary, making the index static avoids rebuilding it. After moving the listeners or
+     * changing the components of compound entities, {@link #invalidateHitTestIndex} must be called then.
+     *
+     * @param hitTestIndexStatic {@code true} to rebuild the hit-test index only when the layer contents change
+     */
+    public void setHitTestIndexStatic(boolean hitTestIndexStatic) {
+        this.hitTestIndexStatic = hitTestIndexStatic;
+    }
+
+    /**
+     * Makes the hit-test index of this render layer be rebuilt before its next use.
+     *
+     * @see #setHitTestIndexStatic
+     */
+    public void invalidateHitTestIndex() {
+        hitTestIndexValid = false;
+    }
+
+    /**
+     * Finds the objects of this render layer whose global bounds intersect (or touch) the specified rectangle. Only
+     * objects that implement {@link BoundsObject} are found. The objects are looked up in a spatial index of this
+     * render layer, which is created by the first query and then kept up to date: the bounds of the objects are
+     * re-read once per frame (after the entities have been moved by the scene loop), and objects are only moved
+     * within the index if their bounds have changed. If objects are moved during the frame, e.g. by the
+     * {@link Scene#loop} method, {@link #updateSpatialIndex} has to be called before querying their new positions.
+     *
+     * @param area   a rectangle in the coordinates of this render layer
+     * @param action the action to be performed for every found object, which must not add or remove objects
+     */
+    public void queryRect(@NotNull FloatRect area, @NotNull Consumer<? super Drawable> action) {
+        syncSpatialIndex().query(Math.min(area.left, area.right), Math.min(area.top, area.bottom),
+                                 Math.max(area.left, area.right), Math.max(area.top, area.bottom), action);
+    }
+
+    /**
+     * Finds the objects of this render layer whose global bounds intersect (or touch) the specified rectangle.
+     *
+     * @param area a rectangle in the coordinates of this render layer
+     * @return a list of the found objects, in no particular order
+     * @see #queryRect(FloatRect, Consumer)
+     */
+    @NotNull
+    public List<Drawable> queryRect(@NotNull FloatRect area) {
+        final List<Drawable> result = new ArrayList<>();
+        queryRect(area, result::add);
+        return result;
+    }
+
+    /**
+     * Finds the objects of this render layer whose global bounds are within the specified distance from a point.
+     *
+     * @param center a point in the coordinates of this render layer
+     * @param radius the maximum distance from the point to the bounds of the objects
+     * @param action the action to be performed for every found object, which must not add or remove objects
+     * @see #queryRect(FloatRect, Consumer)
+     */
+    public void queryRadius(@NotNull Vector2f center, float radius, @NotNull Consumer<? super Drawable> action) {
+        if (radius < 0) throw new IllegalArgumentException("The radius must not be negative");
+        final float radiusSquared = radius * radius;
+        syncSpatialIndex().query(center.x - radius, center.y - radius, center.x + radius, center.y + radius, object -> {
+            final FloatRect bounds = ((BoundsObject) object).getGlobalBounds();
+            final float dx = Math.max(0, Math.max(bounds.left - center.x, center.x - bounds.right)),
+                    dy = Math.max(0, Math.max(bounds.top - center.y, center.y - bounds.bottom));
+            if (dx * dx + dy * dy <= radiusSquared) action.accept(object);
+        });
+    }
+
+    /**
+     * Finds the objects of this render layer whose global bounds are within the specified distance from a point.
+     *
+     * @param center a point in the coordinates of this render layer
+     * @param radius the maximum distance from the point to the bounds of the objects
+     * @return a list of the found objects, in no particular order
+     * @see #queryRect(FloatRect, Consumer)
+     */
+    @NotNull
+    public List<Drawable> queryRadius(@NotNull Vector2f center, float radius) {
+        final List<Drawable> result = new ArrayList<>();
+        queryRadius(center, radius, result::add);
+        return result;
+    }
+
+    /**
+     * Performs the specified action for every pair of objects of this render layer whose global bounds overlap, i.e.
+     * the candidates for a collision. Every pair is passed exactly once, in no particular order, so this replaces
+     * testing every object against every other one. Objects that only touch each other are not considered overlapping.
+     *
+     * @param action the action to be performed for every pair, which must not add or remove objects
+     * @see #queryRect(FloatRect, Consumer)
+     */
+    public void forEachCandidatePair(@NotNull BiConsumer<? super Drawable, ? super Drawable> action) {
+        syncSpatialIndex().forEachPair(action);
+    }
+
+    /**
+     * Finds the object of this render layer closest to the start of the specified line segment that is hit by the
+     * segment. The objects are looked up in the spatial index of this render layer, walking its cells along the
+     * segment, so only the objects near the segment are tested. {@link Shape}s are hit if the segment crosses their
+     * polygon (they are assumed to be convex), while other objects that implement {@link BoundsObject} are hit if the
+     * segment crosses their global bounds.
+     *
+     * @param from the start of the segment, in the coordinates of this render layer
+     * @param to   the end of the segment, in the coordinates of this render layer
+     * @return the closest hit, or {@code null} if the segment does not hit anything
+     * @see #queryRect(FloatRect, Consumer)
+     */
+    @Nullable
+    public RaycastHit raycast(@NotNull Vector2f from, @NotNull Vector2f to) {
+        return raycast(from, to, null);
+    }
+
+    /**
+     * Finds the object of this render layer closest to the start of the specified line segment that is hit
+     * by the segment and accepted by the specified filter. This can be used e.g. to ignore the shooter.
+     *
+     * @param from   the start of the segment, in the coordinates of this render layer
+     * @param to     the end of the segment, in the coordinates of this render layer
+     * @param filter the predicate that the hit objects must match (called only for the objects near the segment), or
+     *               {@code null} to accept all the objects; it must neither modify nor query this render layer
+     * @return the closest hit, or {@code null} if the segment does not hit anything
+     * @see #raycast(Vector2f, Vector2f)
+     */
+    @Nullable
+    public RaycastHit raycast(@NotNull Vector2f from, @NotNull Vector2f to,
+                              @Nullable Predicate<? super Drawable> filter) {
+        rayCaster.cast(syncSpatialIndex(), RayCaster.Mode.CLOSEST, from.x, from.y,
+                       to.x - from.x, to.y - from.y, 0, 0, 0, 0, filter);
+        return rayCaster.getClosest();
+    }
+
+    /**
+     * Finds all the objects of this render layer hit by the specified line segment and accepted by the filter.
+     *
+     * @param from   the start of the segment, in the coordinates of this render layer
+     * @param to     the end of the segment, in the coordinates of this render layer
+     * @param filter the predicate that the hit objects must match (called only for the objects near the segment), or
+     *               {@code null} to accept all the objects; it must neither modify nor query this render layer
+     * @return the list of the hits, sorted from the closest to the farthest one
+     * @see #raycast(Vector2f, Vector2f)
+     */
+    @NotNull
+    public List<RaycastHit> raycastAll(@NotNull Vector2f from, @NotNull Vector2f to,
+                                       @Nullable Predicate<? super Drawable> filter) {
+        rayCaster.cast(syncSpatialIndex(), RayCaster.Mode.ALL, from.x, from.y,
+                       to.x - from.x, to.y - from.y, 0, 0, 0, 0, filter);
+        return rayCaster.getHits();
+    }
+
+    /**
+     * Tests whether the specified line segment hits any object of this render layer accepted by the filter. The test
+     * stops at the first hit found and creates no objects, so it is suitable for frequent visibility checks, e.g.
+     * {@code !raycastAny(enemy.x, enemy.y, player.x, player.y, object -> object instanceof Wall)}.
+     *
+     * @param fromX  the x coordinate of the start of the segment
+     * @param fromY  the y coordinate of the start of the segment
+     * @param toX    the x coordinate of the end of the segment
+     * @param toY    the y coordinate of the end of the segment
+     * @param filter the predicate that the hit objects must match (called only for the objects near the segment), or
+     *               {@code null} to accept all the objects; it must neither modify nor query this render layer
+     * @return {@code true} if the segment hits any accepted object
+     * @see #raycast(Vector2f, Vector2f)
+     */
+    public boolean raycastAny(float fromX, float fromY, float toX, float toY,
+                              @Nullable Predicate<? super Drawable> filter) {
+        return rayCaster.cast(syncSpatialIndex(), RayCaster.Mode.ANY, fromX, fromY,
+                              toX - fromX, toY - fromY, 0, 0, 0, 0, filter);
+    }
+
+    /**
+     * Tests whether the specified line segment hits any object of this render layer accepted by the filter.
+     *
+     * @param from   the start of the segment, in the coordinates of this render layer
+     * @param to     the end of the segment, in the coordinates of this render layer
+     * @param filter the predicate that the hit objects must match (called only for the objects near the segment), or
+     *               {@code null} to accept all the objects; it must neither modify nor query this render layer
+     * @return {@code true} if the segment hits any accepted object
+     * @see #raycastAny(float, float, float, float, Predicate)
+     */
+    public boolean raycastAny(@NotNull Vector2f from, @NotNull Vector2f to,
+                              @Nullable Predicate<? super Drawable> filter) {
+        return raycastAny(from.x, from.y, to.x, to.y, filter);
+    }
+
+    /**
+     * Moves the specified rectangle by the specified displacement and finds the first object of this render layer
+     * accepted by the filter that it touches on the way. The objects are tested using their global bounds (also the
+     * shapes), so this can be used to find how far a fast moving object can go without tunnelling through walls.
+     *
+     * @param box          a rectangle in the coordinates of this render layer
+     * @param displacement the vector by which the rectangle is moved
+     * @param filter       the predicate that the hit objects must match (called only for the objects near the path),
+     *                     or {@code null} to accept all the objects; it must neither modify nor query this render layer
+     * @return the first hit, whose position is the top left corner of the moved rectangle
+     * at the moment of contact, or {@code null} if the rectangle does not hit anything
+     * @see #raycast(Vector2f, Vector2f)
+     */
+    @Nullable
+    public RaycastHit boxcast(@NotNull FloatRect box, @NotNull Vector2f displacement,
+                              @Nullable Predicate<? super Drawable> filter) {
+        castBox(RayCaster.Mode.CLOSEST, box, displacement, filter);
+        return rayCaster.getClosest();
+    }
+
+    /**
+     * Moves the specified rectangle by the specified displacement and finds all
+     * the objects of this render layer accepted by the filter that it touches.
+     *
+     * @param box          a rectangle in the coordinates of this render layer
+     * @param displacement the vector by which the rectangle is moved
+     * @param filter       the predicate that the hit objects must match (called only for the objects near the path),
+     *                     or {@code null} to accept all the objects; it must neither modify nor query this render layer
+     * @return the list of the hits, sorted from the first to the last one
+     * @see #boxcast(FloatRect, Vector2f, Predicate)
+     */
+    @NotNull
+    public List<RaycastHit> boxcastAll(@NotNull FloatRect box, @NotNull Vector2f displacement,
+                                       @Nullable Predicate<? super Drawable> filter) {
+        castBox(RayCaster.Mode.ALL, box, displacement, filter);
+        return rayCaster.getHits();
+    }
+
+    /**
+     * Tests whether the specified rectangle, moved by the specified displacement, touches
+     * any object of this render layer accepted by the filter on the way.
+     *
+     * @param box          a rectangle in the coordinates of this render layer
+     * @param displacement the vector by which the rectangle is moved
+     * @param filter       the predicate that the hit objects must match (called only for the objects near the path),
+     *                     or {@code null} to accept all the objects; it must neither modify nor query this render layer
+     * @return {@code true} if the rectangle touches any accepted object
+     * @see #boxcast(FloatRect, Vector2f, Predicate)
+     */
+    public boolean boxcastAny(@NotNull FloatRect box, @NotNull Vector2f displacement,
+                              @Nullable Predicate<? super Drawable> filter) {
+        return castBox(RayCaster.Mode.ANY, box, displacement, filter);
+    }
+
+    private boolean castBox(@NotNull RayCaster.Mode mode, @NotNull FloatRect box, @NotNull Vector2f displacement,
+                            @Nullable Predicate<? super Drawable> filter) {
+        final float left = Math.min(box.left, box.right), top = Math.min(box.top, box.bottom),
+                halfWidth = Math.abs(box.width) / 2, halfHeight = Math.abs(box.height) / 2;
+        return rayCaster.cast(syncSpatialIndex(), mode, left + halfWidth, top + halfHeight,
+                              displacement.x, displacement.y, halfWidth, halfHeight, halfWidth, halfHeight, filter);
+    }
+
+    /**
+     * Re-reads the bounds of all the objects in the spatial index of this render layer. This method needs to be
+     * called after moving the objects if they are queried again in the same frame.
+     *
+     * @see #queryRect(FloatRect, Consumer)
+     */
+    public void updateSpatialIndex() {
+        if (spatialIndex != null) {
+            spatialIndex.sync(store, spatialIndexModifications != store.modifications());
+            spatialIndexModifications = store.modifications();
+            spatialIndexFrame = frame;
+        }
+    }
+
+    /**
+     * Re-reads the bounds of the specified object in the spatial index of this render layer. This method can be
+     * used instead of {@link #updateSpatialIndex} if only a few objects have been moved during the frame.
+     *
+     * @param object an object of this render layer
+     */
+    public void updateSpatialIndex(@NotNull Drawable object) {
+        if (spatialIndex != null && spatialIndexModifications == store.modifications()) spatialIndex.refresh(object);
+    }
+
+    /**
+     * @return the side length of the cells of the spatial index of this render layer
+     */
+    public float getSpatialIndexCellSize() {
+        return spatialIndexCellSize;
+    }
+
+    /**
+     * Sets the side length of the cells of the spatial index used by {@link #queryRect}, {@link #queryRadius},
+     * {@link #forEachCandidatePair} and the casts, such as {@link #raycast}. The cells should be about the size
+     * of a typical object, so that most objects overlap only a few cells and a query only tests a few objects.
+     * The default cell size is 64.
+     *
+     * @param cellSize the side length of the cells of the spatial index
+     */
+    public void setSpatialIndexCellSize(float cellSize) {
+        if (!(cellSize > 0)) throw new IllegalArgumentException("The cell size must be positive");
+        spatialIndexCellSize = cellSize;
+        spatialIndex = null;
+    }
+
+    private SpatialHash syncSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialHash(spatialIndexCellSize);
+            spatialIndex.sync(store, true);
+            spatialIndexModifications = store.modifications();
+            spatialIndexFrame = frame;
+        } else if (spatialIndexModifications != store.modifications() || spatialIndexFrame != frame)
+            updateSpatialIndex();
+        return spatialIndex;
+    }
+
+    /**
+     * Marks that the objects of this render layer might have been moved since the last frame,
+     * so the indices of their bounds are refreshed before their next use.
+     */
+    void advanceFrame() {
+        frame++;
+    }
+
+    /**
+     * Resets the drawing statistics and computes the visible area of the render target for the current frame.
+     *
+     * @param target the render target that the objects will be drawn on
+     */
+    void beginDraw(@NotNull RenderTarget target) {
+        advanceFrame();
+        drawnCount = culledCount = 0;
+        visibleArea = cullingEnabled ? computeVisibleArea(target.getView()) : null;
+    }
+
+    /**
+     * Draws the specified object on the render target unless culling is enabled and the object is outside the visible
+     * area computed by the last {@link #beginDraw} call. If the render queue is enabled, the object is
+     * only queued and is drawn by the next {@link #endDraw} call.
+     *
+     * @param target the render target to draw the object on
+     * @param object the object to be drawn
+     */
+    void drawObject(@NotNull RenderTarget target, @NotNull Drawable object) {
+        FloatRect bounds = null;
+        if (cullingEnabled) {
+            final FloatRect area = visibleArea;
+            if (area == null) {
+                culledCount++;
+                return;
+            }
+            if (object instanceof final BoundsObject boundsObject) {
+                bounds = boundsObject.getGlobalBounds();
+                if (bounds != null && (bounds.left > area.right || bounds.right < area.left ||
+                                       bounds.top > area.bottom || bounds.bottom < area.top)) {
+                    culledCount++;
+                    return;
+                }
+            }
+        }
+        if (renderQueue != null) {
+            if (bounds == null && object instanceof final BoundsObject boundsObject)
+                bounds = boundsObject.getGlobalBounds();
+            renderQueue.submit(object, bounds);
+        } else target.draw(object);
+        drawnCount++;
+    }
+
+    /**
+     * Draws the objects queued since the last {@link #beginDraw} call if the render queue is enabled.
+     *
+     * @param target the render target to draw the objects on
+     */
+    void endDraw(@NotNull RenderTarget target) {
+        if (renderQueue != null) renderQueue.flush(target);
     }
 
     /**
@@ -390,14 +914,16 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
      */
     public void setOrderingPolicy(@NotNull OrderingPolicy policy) {
         orderingPolicy = policy;
-        updateOrder();
+        store.setLayered(policy == OrderingPolicy.LAYERS);
     }
 
     /**
      * Updates the order of objects on this render layer if the ordering policy is set to {@link OrderingPolicy#LAYERS}.
+     * Objects are placed according to their layer index when they are added, so this method only needs to be called
+     * after the layer index of an object that is already on this render layer has been changed.
      */
     public void updateOrder() {
-        if (orderingPolicy == OrderingPolicy.LAYERS) drawables.sort(Comparator.comparing(Drawable::getLayer));
+        if (orderingPolicy == OrderingPolicy.LAYERS) store.rebuild();
     }
 
     /**
@@ -413,28 +939,11 @@ public abstract sealed class RenderLayer implements Iterable<Drawable> permits H
         LAST_ON_TOP,
         /**
          * A policy that follows an order determined by the layer setting (the {@link Drawable#getLayer} method). Objects with
-         * a higher layer index will be placed further in the list, making them drawn over objects with lower indices. This
-         * policy involves sorting the objects as new ones are added, which might cause performance issues if the render layer
-         * contains many objects or is updated frequently. With this policy, manual shifting of the objects is not permitted.
+         * a higher layer index will be placed further in the list, making them drawn over objects with lower indices. Objects
+         * of the same layer index are kept in the order they were added. Changing the layer index of an object that is already
+         * on the render layer requires calling {@link RenderLayer#updateOrder}. With this policy, manual shifting of the
+         * objects is not permitted.
          */
         LAYERS
     }
-
-    private class DrawablesList extends LinkedList<Drawable> {
-
-        @Override
-        public boolean add(Drawable drawable) {
-            super.add(drawable);
-            if (orderingPolicy == OrderingPolicy.LAYERS) sort(Comparator.comparing(Drawable::getLayer));
-            return true;
-        }
-
-        @Override
-        public boolean addAll(Collection<? extends Drawable> c) {
-            if (c.isEmpty()) return false;
-            super.addAll(c);
-            if (orderingPolicy == OrderingPolicy.LAYERS) sort(Comparator.comparing(Drawable::getLayer));
-            return true;
-        }
-    }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.graphics.*;
+import com.rubynaxela.kyanite.math.FloatRect;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Collects the objects drawn by a render layer in a frame and draws them reordered so that the objects sharing a
+ * texture are drawn one after another, which saves the texture switches of the render target. An object is only moved
+ * before the objects submitted earlier if their global bounds do not overlap, so the result looks exactly the same as
+ * drawing the objects in the order of submitting them. Objects are never moved between layers (the values of
+ * {@link Drawable#getLayer}), and objects that do not implement {@link BoundsObject} are never moved past.
+ * <p>
+ * The objects are grouped into batches in the order of their first appearance. A submitted object is appended to the
+ * most recent batch of its texture (among the last {@value #MAX_OPEN_BATCHES} batches) if it does not overlap any
+ * object of the batches created after that one, otherwise it starts a new batch. The batches are then drawn in order.
+ * Both limits keep the cost of placing an object constant, so the queue takes linear time per frame.
+ */
+final class RenderQueue {
+
+    private static final int MAX_OPEN_BATCHES = 32, MAX_OVERLAP_TESTS = 64;
+    private static final Object UNTEXTURED = new Object();
+
+    private Drawable[] objects = new Drawable[64];
+    private Object[] keys = new Object[64];
+    private float[] bounds = new float[4 * 64];
+    private int[] layers = new int[64], nextInBatch = new int[64];
+    private int count = 0;
+    private Object[] batchKeys = new Object[16];
+    private float[] batchBounds = new float[4 * 16];
+    private int[] batchFirst = new int[16], batchLast = new int[16];
+    private int batchCount = 0;
+    private int stateChanges = 0, stateChangesSaved = 0;
+
+    /**
+     * Adds an object to be drawn by the next {@link #flush}.
+     *
+     * @param object       the object
+     * @param globalBounds the global bounds of the object, or {@code null} if unknown
+     */
+    void submit(@NotNull Drawable object, @Nullable FloatRect globalBounds) {
+        if (count == objects.length) {
+            final int capacity = count * 2;
+            objects = Arrays.copyOf(objects, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            bounds = Arrays.copyOf(bounds, 4 * capacity);
+            layers = Arrays.copyOf(layers, capacity);
+            nextInBatch = Arrays.copyOf(nextInBatch, capacity);
+        }
+        objects[count] = object;
+        keys[count] = stateKey(object);
+        layers[count] = object.getLayer();
+        final int b = 4 * count;
+        if (globalBounds != null &&
+            !Float.isNaN(globalBounds.left + globalBounds.top + globalBounds.right + globalBounds.bottom)) {
+            bounds[b] = globalBounds.left;
+            bounds[b + 1] = globalBounds.top;
+            bounds[b + 2] = globalBounds.right;
+            bounds[b + 3] = globalBounds.bottom;
+        } else {
+            // an object of unknown bounds might overlap anything
+            bounds[b] = bounds[b + 1] = Float.NEGATIVE_INFINITY;
+            bounds[b + 2] = bounds[b + 3] = Float.POSITIVE_INFINITY;
+        }
+        count++;
+    }
+
+    /**
+     * Draws the submitted objects in the reordered order and clears the queue.
+     *
+     * @param target the render target to draw the objects on
+     */
+    void flush(@NotNull RenderTarget target) {
+        int submittedChanges = 0, drawnChanges = 0;
+        for (int i = 0; i < count; i++)
+            if (i == 0 || keys[i] == null || keys[i] != keys[i - 1]) submittedChanges++;
+        Object lastKey = null;
+        boolean first = true;
+        int start = 0;
+        while (start < count) {
+            int end = start + 1;
+            while (end < count && layers[end] == layers[start]) end++;
+            batchCount = 0;
+            for (int i = start; i < end; i++) place(i);
+            for (int batch = 0; batch < batchCount; batch++)
+                for (int i = batchFirst[batch]; i >= 0; i = nextInBatch[i]) {
+                    if (first || keys[i] == null || keys[i] != lastKey) drawnChanges++;
+                    lastKey = keys[i];
+                    first = false;
+                    target.draw(objects[i]);
+                }
+            start = end;
+        }
+        stateChanges = drawnChanges;
+        stateChangesSaved = submittedChanges - drawnChanges;
+        Arrays.fill(objects, 0, count, null);
+        Arrays.fill(keys, 0, count, null);
+        Arrays.fill(batchKeys, 0, batchCount, null);
+        count = 0;
+    }
+
+    /**
+     * @return the number of texture switches when drawing the objects in the last flushed frame
+     */
+    int getStateChanges() {
+        return stateChanges;
+    }
+
+    /**
+     * @return the number of texture switches saved by reordering the objects in the last flushed frame
+     */
+    int getStateChangesSaved() {
+        return stateChangesSaved;
+    }
+
+    private void place(int item) {
+        final Object key = keys[item];
+        nextInBatch[item] = -1;
+        int target = -1;
+        if (key != null)
+            for (int batch = batchCount - 1; batch >= Math.max(0, batchCount - MAX_OPEN_BATCHES); batch--)
+                if (batchKeys[batch] == key) {
+                    target = batch;
+                    break;
+                }
+        if (target >= 0 && !canJoin(target, item)) target = -1;
+        final int b = 4 * item;
+        if (target >= 0) {
+            nextInBatch[batchLast[target]] = item;
+            batchLast[target] = item;
+            final int t = 4 * target;
+            batchBounds[t] = Math.min(batchBounds[t], bounds[b]);
+            batchBounds[t + 1] = Math.min(batchBounds[t + 1], bounds[b + 1]);
+            batchBounds[t + 2] = Math.max(batchBounds[t + 2], bounds[b + 2]);
+            batchBounds[t + 3] = Math.max(batchBounds[t + 3], bounds[b + 3]);
+            return;
+        }
+        if (batchCount == batchKeys.length) {
+            final int capacity = batchCount * 2;
+            batchKeys = Arrays.copyOf(batchKeys, capacity);
+            batchBounds = Arrays.copyOf(batchBounds, 4 * capacity);
+            batchFirst = Arrays.copyOf(batchFirst, capacity);
+            batchLast = Arrays.copyOf(batchLast, capacity);
+        }
+        batchKeys[batchCount] = key;
+        batchFirst[batchCount] = batchLast[batchCount] = item;
+        System.arraycopy(bounds, b, batchBounds, 4 * batchCount, 4);
+        batchCount++;
+    }
+
+    /**
+     * Checks whether the specified object can be moved to the end of the specified batch. The object would be drawn
+     * before all the objects of the later batches, so it must not overlap any of them. Batches whose bounds overlap
+     * the object are scanned one object at a time, up to {@value #MAX_OVERLAP_TESTS} objects in total, after which the
+     * object is assumed to overlap, so that placing an object never costs more than a fixed number of tests.
+     */
+    private boolean canJoin(int target, int item) {
+        int tests = 0;
+        for (int batch = target + 1; batch < batchCount; batch++) {
+            if (!overlaps(batchBounds, 4 * batch, item)) continue;
+            for (int i = batchFirst[batch]; i >= 0; i = nextInBatch[i])
+                if (++tests > MAX_OVERLAP_TESTS || overlaps(bounds, 4 * i, item)) return false;
+        }
+        return true;
+    }
+
+    private boolean overlaps(float[] rects, int index, int item) {
+        final int b = 4 * item;
+        return rects[index] <= bounds[b + 2] && rects[index + 2] >= bounds[b] &&
+               rects[index + 1] <= bounds[b + 3] && rects[index + 3] >= bounds[b + 1];
+    }
+
+    /**
+     * Finds the texture that the render target has to bind to draw the specified object.
+     *
+     * @return the texture, a common key of all the untextured objects, or {@code null} if it is unknown
+     */
+    @Nullable
+    private static Object stateKey(@NotNull Drawable object) {
+        if (object instanceof final Sprite sprite) {
+            final ConstTexture texture = sprite.getCurrentTexture();
+            return texture != null ? texture : UNTEXTURED;
+        }
+        if (!(object instanceof final SceneObject sceneObject)) return null;
+        if (sceneObject.getTexture() != null) return sceneObject.getTexture();
+        // the current frame of an animated shape is not known, so it can never share a batch
+        if (sceneObject.getAnimatedTexture() != null) return null;
+        return UNTEXTURED;
+    }
+}
@@ -16,7 +16,9 @@ package com.rubynaxela.kyanite.game;
 
 import com.rubynaxela.kyanite.game.entities.AnimatedEntity;
 import com.rubynaxela.kyanite.game.entities.CompoundEntity;
+import com.rubynaxela.kyanite.game.entities.InterpolatedEntity;
 import com.rubynaxela.kyanite.game.entities.MovingEntity;
+import com.rubynaxela.kyanite.game.entities.ThreadSafeEntity;
 import com.rubynaxela.kyanite.graphics.Drawable;
 import com.rubynaxela.kyanite.math.Vec2;
 import com.rubynaxela.kyanite.physics.GravityAffected;
@@ -25,8 +27,13 @@ import com.rubynaxela.kyanite.util.Time;
 import com.rubynaxela.kyanite.window.Window;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.Serial;
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Provides a scene that can be given a custom behavior and displayed on a {@link Window}.
@@ -34,9 +41,13 @@ import java.util.ConcurrentModificationException;
 public abstract non-sealed class Scene extends RenderLayer {
 
     private final Clock clock = (Clock) context.getClock();
-    private Time previousFrameTime, currentFrameTime;
-    private boolean suspended = false;
-    private float maxLagFactor = 5f, maxSceneDuration = 5f / 60;
+    private Time previousFrameTime, currentFrameTime, fixedTimeStep = null, simulatedTime = null;
+    private boolean suspended = false, headless = false, frameLocked = false;
+    private float maxLagFactor = 5f, maxSceneDuration = 5f / 60, accumulator = 0, interpolationAlpha = 1;
+    private int maxTicksPerFrame = 5;
+    private ForkJoinPool parallelUpdatePool = null;
+    private Drawable[] parallelUpdateBuffer = new Drawable[0];
+    SceneLoader loader = null;
 
     /**
      * Creates a "null" scene with empty {@link Scene#init} and {@link Scene#loop} methods.
@@ -63,12 +74,32 @@ public abstract non-sealed class Scene extends RenderLayer {
     public final void fullInit() {
         if (!ready) {
             ready = true;
-            clock.tryStart();
-            currentFrameTime = previousFrameTime = clock.getTime();
+            if (!headless) clock.tryStart();
+            currentFrameTime = previousFrameTime = now();
             init();
         } else throw new IllegalStateException("This scene has been already initialized");
     }
 
+    /**
+     * This method is executed on a worker thread when the scene is prepared in the background (see
+     * {@link Window#preloadScene}), before the scene is assigned to a window and the {@link #init} method is called.
+     * It is designed for the time-consuming work, such as reading files and decoding images or sounds. The steps
+     * that have to be performed on the window thread (e.g. creating textures) should be queued with
+     * {@link SceneLoader#runOnWindowThread}. By default, this method does nothing.
+     *
+     * @param loader the loader preparing this scene
+     */
+    protected void preload(@NotNull SceneLoader loader) {
+    }
+
+    /**
+     * @return the loader preparing this scene in the background, or {@code null} if the scene is not being prepared
+     */
+    @Nullable
+    public SceneLoader getLoader() {
+        return loader;
+    }
+
     /**
      * This method is executed every frame by the window it belongs to.
      */
@@ -76,39 +107,147 @@ public abstract non-sealed class Scene extends RenderLayer {
 
     /**
      * Calls the {@link #loop} method, then every entity is animated (if it implements {@link AnimatedEntity}
-     * or {@link MovingEntity}) and drawn on the game window. This method is automatically
-     * executed every frame by the window it belongs to and should not be invoked manually.
+     * or {@link MovingEntity}) and drawn on the game window. If a fixed time step is set, the loop and the
+     * animation are performed as many times as needed to catch up with the elapsed time (see
+     * {@link #setFixedTimeStep}). This method is automatically executed every frame by the window
+     * it belongs to and should not be invoked manually.
      *
      * @param window the window that the scene has to be displayed on
      */
     public final void fullLoop(@NotNull Window window) {
-        if (!suspended) {
-            runScheduledActions();
-            if (getDeltaTime().asSeconds() <= maxSceneDuration) {
+        final FrameStats stats = context.getFrameStats();
+        final boolean updated = update(stats, true);
+        final long time = stats.start();
+        if (updated && background != null) window.draw(background);
+        beginDraw(window);
+        forEach(object -> drawObject(window, object));
+        endDraw(window);
+        stats.record(FrameStats.Phase.SCENE_DRAW, time);
+        if (frameLocked) simulatedTime = Time.add(simulatedTime, lockedStep());
+        previousFrameTime = currentFrameTime;
+        currentFrameTime = now();
+    }
+
+    /**
+     * Advances the simulated time of a headless scene by the specified time and performs a scene
+     * iteration without drawing anything. This method is used by {@link HeadlessRunner}.
+     *
+     * @param deltaTime the simulated time between the previous and the current iteration
+     */
+    void simulate(@NotNull Time deltaTime) {
+        simulatedTime = Time.add(simulatedTime, deltaTime);
+        previousFrameTime = currentFrameTime;
+        currentFrameTime = simulatedTime;
+        update(context.getFrameStats(), false);
+    }
+
+    private boolean update(@NotNull FrameStats stats, boolean skipLaggedFrames) {
+        if (suspended) return false;
+        long time = stats.start();
+        runScheduledActions();
+        time = stats.record(FrameStats.Phase.SCHEDULED_ACTIONS, time);
+        if (fixedTimeStep != null) {
+            final float step = fixedTimeStep.asSeconds();
+            final float frameDelta = frameLocked ? step : getFrameDeltaTime().asSeconds();
+            accumulator = Math.min(accumulator + frameDelta, maxTicksPerFrame * step);
+            while (accumulator >= step) {
                 loop();
-                if (background != null) window.draw(background);
-                try {
-                    forEach(object -> {
-                        final Time et = getElapsedTime();
-                        final float dt = getDeltaTime().asSeconds();
-                        if (object instanceof final GravityAffected entity)
-                            entity.setVelocity(Vec2.add(entity.getVelocity(), Vec2.f(0, entity.getGravity() * dt)));
-                        if (object instanceof final AnimatedEntity entity) entity.animate(getDeltaTime(), et);
-                        updateAnimatedTexture(object);
-                        if (object instanceof final CompoundEntity entity)
-                            for (final Drawable component : entity.getComponents()) updateAnimatedTexture(component);
-                        if (object instanceof final MovingEntity entity) entity.move(Vec2.multiply(entity.getVelocity(), dt));
-                    });
-                } catch (ConcurrentModificationException e) {
-                    throw new ConcurrentModificationException("Scene contents cannot be modified during a loop iteration." +
-                                                              " In order to add or remove an object, use the" +
-                                                              " scheduleToAdd(), scheduleToRemove() or schedule() method");
+                time = stats.record(FrameStats.Phase.SCENE_LOOP, time);
+                updateEntities(fixedTimeStep);
+                time = stats.record(FrameStats.Phase.ENTITY_UPDATE, time);
+                accumulator -= step;
+                if (accumulator >= step) {
+                    runScheduledActions();
+                    time = stats.record(FrameStats.Phase.SCHEDULED_ACTIONS, time);
                 }
             }
+            interpolationAlpha = accumulator / step;
+            forEach(object -> {
+                if (object instanceof final InterpolatedEntity entity) entity.interpolate(interpolationAlpha);
+            });
+            stats.record(FrameStats.Phase.ENTITY_UPDATE, time);
+            return true;
+        } else if (!skipLaggedFrames || getDeltaTime().asSeconds() <= maxSceneDuration) {
+            loop();
+            time = stats.record(FrameStats.Phase.SCENE_LOOP, time);
+            updateEntities(getDeltaTime());
+            stats.record(FrameStats.Phase.ENTITY_UPDATE, time);
+            return true;
         }
-        forEach(window::draw);
-        previousFrameTime = currentFrameTime;
-        currentFrameTime = clock.getTime();
+        return false;
+    }
+
+    private void updateEntities(@NotNull Time deltaTime) {
+        final Time et = getElapsedTime();
+        final float dt = deltaTime.asSeconds();
+        try {
+            if (parallelUpdatePool != null) {
+                final int n = collectThreadSafeEntities(), modifications = store.modifications();
+                if (n > 0) parallelUpdatePool.invoke(new ParallelUpdate(parallelUpdateBuffer, 0, n, deltaTime, et));
+                Arrays.fill(parallelUpdateBuffer, 0, n, null);
+                if (store.modifications() != modifications) throw new ConcurrentModificationException();
+            }
+            forEach(object -> {
+                if (parallelUpdatePool == null || !(object instanceof ThreadSafeEntity)) animate(object, deltaTime, et);
+                updateAnimatedTexture(object);
+                if (object instanceof final CompoundEntity entity)
+                    for (final Drawable component : entity.getComponents()) updateAnimatedTexture(component);
+                if (object instanceof final MovingEntity entity) entity.move(Vec2.multiply(entity.getVelocity(), dt));
+            });
+            advanceFrame();
+        } catch (ConcurrentModificationException e) {
+            throw new ConcurrentModificationException("Scene contents cannot be modified during a loop iteration." +
+                                                      " In order to add or remove an object, use the" +
+                                                      " scheduleToAdd(), scheduleToRemove() or schedule() method");
+        }
+    }
+
+    private static void animate(@NotNull Drawable object, @NotNull Time deltaTime, @NotNull Time elapsedTime) {
+        if (object instanceof final GravityAffected entity)
+            entity.setVelocity(Vec2.add(entity.getVelocity(), Vec2.f(0, entity.getGravity() * deltaTime.asSeconds())));
+        if (object instanceof final AnimatedEntity entity) entity.animate(deltaTime, elapsedTime);
+    }
+
+    private int collectThreadSafeEntities() {
+        int n = 0;
+        for (final Drawable object : drawables) {
+            if (object instanceof ThreadSafeEntity) {
+                if (n == parallelUpdateBuffer.length)
+                    parallelUpdateBuffer = Arrays.copyOf(parallelUpdateBuffer, Math.max(16, n * 2));
+                parallelUpdateBuffer[n++] = object;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return whether the animation of {@link ThreadSafeEntity} objects is performed in parallel
+     */
+    public boolean isParallelUpdateEnabled() {
+        return parallelUpdatePool != null;
+    }
+
+    /**
+     * Sets whether the animation of {@link ThreadSafeEntity} objects is performed in parallel, using the common
+     * {@link ForkJoinPool}. With this option enabled, the gravity acceleration and the {@link AnimatedEntity#animate}
+     * method of all such objects are executed concurrently before the rest of the scene update. The animated textures
+     * of all objects are updated and all {@link MovingEntity} objects are moved afterwards, on the window thread.
+     * Objects that do not implement {@link ThreadSafeEntity} are updated on the window thread as usual.
+     *
+     * @param enabled {@code true} to update thread-safe entities in parallel
+     */
+    public void setParallelUpdateEnabled(boolean enabled) {
+        setParallelUpdatePool(enabled ? ForkJoinPool.commonPool() : null);
+    }
+
+    /**
+     * Sets the pool used to perform the animation of {@link ThreadSafeEntity} objects in parallel.
+     *
+     * @param pool the pool to be used, or {@code null} to update all the entities on the window thread
+     * @see #setParallelUpdateEnabled
+     */
+    public void setParallelUpdatePool(@Nullable ForkJoinPool pool) {
+        this.parallelUpdatePool = pool;
     }
 
     /**
@@ -116,20 +255,91 @@ public abstract non-sealed class Scene extends RenderLayer {
      * this method during the first frame of the scene will return time estimated by the
      * window framerate limit as there was no previous frame time to compute the difference.
      *
-     * @return time between the current and the previous frame
+     * If a fixed time step is set, this method returns the time step instead.
+     *
+     * @return time between the current and the previous frame, or the fixed time step if it is set
      */
     public Time getDeltaTime() {
+        return fixedTimeStep != null ? fixedTimeStep : getFrameDeltaTime();
+    }
+
+    /**
+     * Gets the time that has passed between the previous and the current frame, regardless of whether a fixed time step
+     * is set. Calling this method during the first frame of the scene will return time estimated by the window framerate
+     * limit as there was no previous frame time to compute the difference.
+     *
+     * @return time between the current and the previous frame
+     */
+    public Time getFrameDeltaTime() {
+        if (frameLocked) return lockedStep();
         if (previousFrameTime == null || previousFrameTime.equals(currentFrameTime)) return estimatedTime();
         return Time.sub(currentFrameTime, previousFrameTime);
     }
 
+    /**
+     * @return the fixed time step of this scene, or {@code null} if the scene is updated once per frame
+     */
+    @Nullable
+    public Time getFixedTimeStep() {
+        return fixedTimeStep;
+    }
+
+    /**
+     * Sets the fixed time step of this scene. By default, the {@link #loop} method and the entity animation are executed
+     * once per frame with the time between frames as the delta time. If a fixed time step is set, they are executed
+     * with this constant delta time as many times per frame as needed to keep up with the elapsed time, which makes
+     * the simulation independent of the framerate. The part of the elapsed time that does not make up a whole step is
+     * carried over to the next frame and is available as {@link #getInterpolationAlpha}, which is also passed to every
+     * {@link InterpolatedEntity} before drawing so that motion stays smooth at any framerate.
+     *
+     * @param timeStep the fixed time step, or {@code null} to update the scene once per frame
+     * @see #setMaxTicksPerFrame
+     */
+    public void setFixedTimeStep(@Nullable Time timeStep) {
+        if (timeStep != null && timeStep.asMicroseconds() <= 0)
+            throw new IllegalArgumentException("The fixed time step must be positive");
+        this.fixedTimeStep = timeStep;
+        accumulator = 0;
+        interpolationAlpha = 1;
+    }
+
+    /**
+     * @return the maximum number of fixed time steps performed in a single frame
+     */
+    public int getMaxTicksPerFrame() {
+        return maxTicksPerFrame;
+    }
+
+    /**
+     * Sets the maximum number of fixed time steps performed in a single frame. The default value is 5. If a frame
+     * lasted longer than this number of steps, the remaining time is dropped and the simulation slows down instead
+     * of spending even more time catching up. This setting has no effect if no fixed time step is set.
+     *
+     * @param maxTicksPerFrame the maximum number of fixed time steps performed in a single frame
+     */
+    public void setMaxTicksPerFrame(int maxTicksPerFrame) {
+        if (maxTicksPerFrame < 1) throw new IllegalArgumentException("At least one tick per frame must be allowed");
+        this.maxTicksPerFrame = maxTicksPerFrame;
+    }
+
+    /**
+     * Gets the progress between the last and the next fixed time step, as a fraction of the time step. This value can be
+     * used to interpolate the drawn state of objects between the two most recent steps. If no fixed time step is set,
+     * this method returns 1.
+     *
+     * @return the interpolation factor between 0 (inclusive) and 1 (exclusive)
+     */
+    public float getInterpolationAlpha() {
+        return interpolationAlpha;
+    }
+
     /**
      * Gets the elapsed time since the game was started.
      *
      * @return the elapsed time since the game was started
      */
     public Time getElapsedTime() {
-        return clock.getTime();
+        return now();
     }
 
     /**
@@ -155,7 +365,8 @@ public abstract non-sealed class Scene extends RenderLayer {
     public void resume() {
         if (!suspended) throw new IllegalStateException("This scene is not suspended");
         suspended = false;
-        currentFrameTime = previousFrameTime = clock.getTime();
+        currentFrameTime = previousFrameTime = now();
+        accumulator = 0;
     }
 
     /**
@@ -181,8 +392,93 @@ public abstract non-sealed class Scene extends RenderLayer {
         }
     }
 
+    /**
+     * @return whether this scene is run by a {@link HeadlessRunner} rather than displayed on a window
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * @return whether every window frame advances the time of this scene by exactly one step
+     * @see #setFrameLocked
+     */
+    public boolean isFrameLocked() {
+        return frameLocked;
+    }
+
+    /**
+     * Sets whether every window frame advances the time of this scene by exactly one step instead of by the time
+     * measured by the game clock. The step is the fixed time step if it is set (see {@link #setFixedTimeStep}), so
+     * exactly one tick is performed per frame, or the frame duration resulting from the window framerate limit
+     * otherwise. The delta times and the elapsed time passed to the loop and to the entities then only depend on the
+     * number of frames, which makes a game session reproducible from a recorded input (see {@code InputRecorder}).
+     * If enabled before this scene is initialized, the time of this scene starts at zero; otherwise it continues from
+     * the current time. The simulation runs slower or faster than in real time if the frames do not last one step.
+     *
+     * @param frameLocked {@code true} to advance the time by one step per frame
+     * @throws IllegalStateException if this scene is headless, since its time is advanced by the runner
+     */
+    public void setFrameLocked(boolean frameLocked) {
+        if (headless) throw new IllegalStateException("The time of a headless scene is advanced by its runner");
+        if (frameLocked == this.frameLocked) return;
+        this.frameLocked = frameLocked;
+        simulatedTime = frameLocked ? (ready ? now() : Time.us(0)) : null;
+        currentFrameTime = previousFrameTime = now();
+        accumulator = 0;
+    }
+
+    /**
+     * Makes this scene use a simulated time, starting at zero, instead of the game clock.
+     * This method is used by {@link HeadlessRunner} before the scene is initialized.
+     */
+    void makeHeadless() {
+        if (ready) throw new IllegalStateException("This scene has been already initialized");
+        headless = true;
+        frameLocked = false;
+        simulatedTime = Time.us(0);
+    }
+
+    private Time now() {
+        return simulatedTime != null ? simulatedTime : clock.getTime();
+    }
+
+    private Time lockedStep() {
+        return fixedTimeStep != null ? fixedTimeStep : estimatedTime();
+    }
+
     private Time estimatedTime() {
-        final int framerate = getContext().getWindow().getFramerateLimit();
+        final int framerate = getContext().getWindow() != null ? getContext().getWindow().getFramerateLimit() : 0;
         return Time.s(1f / (framerate > 0 ? framerate : 60));
     }
+
+    private static class ParallelUpdate extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 256;
+
+        private final Drawable[] objects;
+        private final int from, to;
+        private final Time deltaTime, elapsedTime;
+
+        private ParallelUpdate(@NotNull Drawable[] objects, int from, int to,
+                               @NotNull Time deltaTime, @NotNull Time elapsedTime) {
+            this.objects = objects;
+            this.from = from;
+            this.to = to;
+            this.deltaTime = deltaTime;
+            this.elapsedTime = elapsedTime;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) for (int i = from; i < to; i++) animate(objects[i], deltaTime, elapsedTime);
+            else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new ParallelUpdate(objects, from, mid, deltaTime, elapsedTime),
+                          new ParallelUpdate(objects, mid, to, deltaTime, elapsedTime));
+            }
+        }
+    }
 }
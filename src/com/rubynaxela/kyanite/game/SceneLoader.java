@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.util.Time;
+import com.rubynaxela.kyanite.window.Window;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Prepares a {@link Scene} in the background before it is displayed on a window. The {@link Scene#preload} method
+ * of the scene is executed on a worker thread, while the steps that have to be performed on the window thread (e.g.
+ * creating textures from the decoded images) are queued with {@link #runOnWindowThread} and executed by the window
+ * loop, within a time budget per frame, so that the window stays responsive. Scene loaders are created by the
+ * {@link Window#preloadScene} and {@link Window#loadScene} methods. Sample usage:<pre>
+ * protected void preload(SceneLoader loader) {
+ *     final Image image = new Image();
+ *     image.loadFromFile(Path.of("level.png"));
+ *     loader.setProgress(0.5f);
+ *     levelTexture = loader.runOnWindowThread(() -&gt; new Texture(image)).join();
+ * }</pre>
+ */
+public final class SceneLoader {
+
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(task -> {
+        final Thread thread = new Thread(task, "Kyanite scene loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Scene scene;
+    private final BlockingQueue<Runnable> windowTasks = new LinkedBlockingQueue<>();
+    private final Consumer<? super Float> progressCallback;
+    private final Future<?> worker;
+    private Consumer<? super Throwable> failureCallback = null;
+    private volatile Throwable failure = null;
+    private volatile float progress = 0;
+    private float reportedProgress = -1;
+    private long windowTaskBudget = 4000000;
+
+    /**
+     * Starts preparing the specified scene. This constructor is used by the
+     * {@link Window#preloadScene} method and should not be invoked manually.
+     *
+     * @param scene            the scene to be prepared
+     * @param progressCallback the action to be executed on the window thread when the progress changes, or {@code null}
+     */
+    public SceneLoader(@NotNull Scene scene, @Nullable Consumer<? super Float> progressCallback) {
+        if (scene.ready || scene.loader != null)
+            throw new IllegalStateException("This scene has been already initialized or is being prepared");
+        this.scene = scene;
+        this.progressCallback = progressCallback;
+        scene.loader = this;
+        worker = WORKERS.submit(() -> {
+            try {
+                scene.preload(this);
+            } catch (Throwable throwable) {
+                failure = throwable;
+                throw throwable;
+            }
+            progress = 1;
+            return null;
+        });
+    }
+
+    /**
+     * @return the scene being prepared by this loader
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Scene> T getScene() {
+        return (T) scene;
+    }
+
+    /**
+     * @return the progress of the scene preparation, between 0 and 1
+     */
+    public float getProgress() {
+        return progress;
+    }
+
+    /**
+     * Reports the progress of the scene preparation. This method is designed to be called by the
+     * {@link Scene#preload} method. The progress is automatically set to 1 when the preloading finishes.
+     *
+     * @param progress the progress of the scene preparation, between 0 and 1
+     */
+    public void setProgress(float progress) {
+        this.progress = Math.max(0, Math.min(1, progress));
+    }
+
+    /**
+     * Queues the specified action to be executed on the window thread. This method is designed to be called by the
+     * {@link Scene#preload} method for the steps which require the native resources of the window thread.
+     *
+     * @param action the action to be executed
+     * @param <T>    the type of the action result
+     * @return a future completed with the action result after the action has been executed
+     */
+    public <T> CompletableFuture<T> runOnWindowThread(@NotNull Supplier<T> action) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        windowTasks.add(() -> {
+            try {
+                result.complete(action.get());
+            } catch (Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Queues the specified action to be executed on the window thread. This method is designed to be called by the
+     * {@link Scene#preload} method for the steps which require the native resources of the window thread.
+     *
+     * @param action the action to be executed
+     * @return a future completed after the action has been executed
+     */
+    public CompletableFuture<Void> runOnWindowThread(@NotNull Runnable action) {
+        return runOnWindowThread(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return the maximum time spent on executing the queued actions by the window thread every frame
+     */
+    public Time getWindowTaskBudget() {
+        return Time.us(windowTaskBudget / 1000);
+    }
+
+    /**
+     * Sets the maximum time spent on executing the queued actions by the window thread every frame. An action that has
+     * already started is never interrupted, so the budget may be exceeded by one action. The default budget is 4 ms.
+     *
+     * @param budget the maximum time spent on executing the queued actions every frame
+     */
+    public void setWindowTaskBudget(@NotNull Time budget) {
+        this.windowTaskBudget = budget.asMicroseconds() * 1000;
+    }
+
+    /**
+     * @return whether the scene preparation has finished (either successfully or not)
+     */
+    public boolean isDone() {
+        return worker.isDone() && (windowTasks.isEmpty() || failure != null);
+    }
+
+    /**
+     * @return whether the scene preparation has failed
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * @return the exception thrown by the {@link Scene#preload} method, or {@code null} if it has not failed
+     */
+    @Nullable
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Sets the action to be executed on the window thread if the scene preparation fails. A failed scene is never
+     * displayed by the window loop; the scene switch scheduled with {@link Window#loadScene} is cancelled instead,
+     * and the current scene stays displayed. Only an explicit {@link Window#setScene} call with the failed scene
+     * rethrows the exception (see {@link #await}).
+     *
+     * @param failureCallback the action to be executed with the exception thrown by the {@link Scene#preload}
+     *                        method as the argument (e.g. to display an error message), or {@code null}
+     * @return the reference to this loader
+     */
+    public SceneLoader setFailureCallback(@Nullable Consumer<? super Throwable> failureCallback) {
+        this.failureCallback = failureCallback;
+        return this;
+    }
+
+    /**
+     * Executes the queued actions within the time budget and reports the progress. If the preparation has failed,
+     * the remaining actions are dropped and the failure callback is executed. This method
+     * is called every frame by the window loop and should not be invoked manually.
+     *
+     * @return {@code true} if the scene preparation has finished
+     */
+    public boolean update() {
+        final long start = System.nanoTime();
+        Runnable task;
+        while (failure == null && System.nanoTime() - start < windowTaskBudget && (task = windowTasks.poll()) != null)
+            task.run();
+        if (worker.isDone() && failure != null) {
+            windowTasks.clear();
+            if (failureCallback != null) failureCallback.accept(failure);
+            return true;
+        }
+        reportProgress();
+        return isDone();
+    }
+
+    /**
+     * Waits for the scene preparation to finish, executing the queued actions on the calling thread. This
+     * method is called by {@link Window#setScene} for a scene that is not ready yet, so it must be called
+     * from the window thread. If the preloading has failed, the exception is rethrown by this method.
+     */
+    public void await() {
+        try {
+            while (!worker.isDone()) {
+                final Runnable task = windowTasks.poll(1, TimeUnit.MILLISECONDS);
+                if (task != null) task.run();
+            }
+            Runnable task;
+            while ((task = windowTasks.poll()) != null) task.run();
+            reportProgress();
+            worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while preparing the scene", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scene preloading has failed", e.getCause());
+        } finally {
+            scene.loader = null;
+        }
+    }
+
+    private void reportProgress() {
+        final float current = progress;
+        if (progressCallback != null && current != reportedProgress) {
+            reportedProgress = current;
+            progressCallback.accept(current);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game;
+
+import com.rubynaxela.kyanite.graphics.BoundsObject;
+import com.rubynaxela.kyanite.graphics.Drawable;
+import com.rubynaxela.kyanite.math.FloatRect;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A spatial hash of the global bounds of the {@link BoundsObject}s of a render layer. Every object is stored in all the
+ * cells of a uniform, unbounded grid that its bounds overlap. The bounds are re-read on every {@link #sync}, but an
+ * object is only moved between the cells if its bounds have changed (which is detected by the identity of the bounds
+ * rectangle, as shapes and sprites cache it) and now overlap different cells. Objects overlapping more than
+ * {@value #MAX_CELLS_PER_ENTRY} cells are kept in a separate list, which is tested by every query. Casts walk the
+ * cells along the cast segment in order, so they can stop as soon as the nearest hit has been found.
+ */
+final class SpatialHash {
+
+    private static final int MAX_CELLS_PER_ENTRY = 256;
+    private static final int NOT_INDEXED = 0, IN_CELLS = 1, LARGE = 2;
+
+    private final float cellSize;
+    private final Map<Drawable, Integer> ids = new IdentityHashMap<>();
+    private Drawable[] objects = new Drawable[64];
+    private FloatRect[] rects = new FloatRect[64];
+    private int[] ranges = new int[256], states = new int[64], stamps = new int[64], seen = new int[64];
+    private int[] freeIds = new int[16], large = new int[16];
+    private int idCount = 0, freeCount = 0, largeCount = 0, stamp = 0, epoch = 0;
+    // open addressing table of the cells, the empty cells are only dropped when the table grows
+    private long[] cellKeys = new long[256];
+    private int[][] cellItems = new int[256][];
+    private int[] cellSizes = new int[256];
+    private int cellCount = 0;
+
+    SpatialHash(float cellSize) {
+        if (!(cellSize > 0)) throw new IllegalArgumentException("The cell size must be positive");
+        this.cellSize = cellSize;
+    }
+
+    float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Updates the index to the current contents of the render layer and re-reads the bounds of the objects.
+     *
+     * @param objects         the objects of the render layer
+     * @param contentsChanged whether objects might have been added or removed since the last call
+     */
+    void sync(@NotNull Iterable<Drawable> objects, boolean contentsChanged) {
+        if (contentsChanged) {
+            epoch++;
+            for (final Drawable object : objects) {
+                if (!(object instanceof BoundsObject)) continue;
+                final Integer known = ids.get(object);
+                final int id = known != null ? known : add(object);
+                seen[id] = epoch;
+            }
+            for (int id = 0; id < idCount; id++)
+                if (this.objects[id] != null && seen[id] != epoch) remove(id);
+        }
+        for (int id = 0; id < idCount; id++) if (this.objects[id] != null) refresh(id);
+    }
+
+    /**
+     * Re-reads the bounds of the specified object, if it is indexed.
+     *
+     * @param object an object of the render layer
+     */
+    void refresh(@NotNull Drawable object) {
+        final Integer id = ids.get(object);
+        if (id != null) refresh(id);
+    }
+
+    /**
+     * Passes every object whose bounds intersect the specified rectangle (including touching it) to the action.
+     */
+    void query(float left, float top, float right, float bottom, @NotNull Consumer<? super Drawable> action) {
+        nextStamp();
+        for (int i = 0; i < largeCount; i++) test(large[i], left, top, right, bottom, action);
+        final int c0 = cell(left), r0 = cell(top), c1 = cell(right), r1 = cell(bottom);
+        if ((long) (c1 - c0 + 1) * (r1 - r0 + 1) > Math.max(cellCount, ids.size())) {
+            for (int id = 0; id < idCount; id++)
+                if (states[id] == IN_CELLS) test(id, left, top, right, bottom, action);
+            return;
+        }
+        for (int r = r0; r <= r1; r++)
+            for (int c = c0; c <= c1; c++) {
+                final int slot = findSlot(key(c, r));
+                if (slot < 0) continue;
+                final int[] items = cellItems[slot];
+                for (int i = 0, n = cellSizes[slot]; i < n; i++) test(items[i], left, top, right, bottom, action);
+            }
+    }
+
+    /**
+     * Passes every pair of objects whose bounds overlap (not only touch) to the action, exactly once.
+     */
+    void forEachPair(@NotNull BiConsumer<? super Drawable, ? super Drawable> action) {
+        for (int slot = 0; slot < cellKeys.length; slot++) {
+            final int n = cellSizes[slot];
+            if (n < 2) continue;
+            final int[] items = cellItems[slot];
+            final long key = cellKeys[slot];
+            for (int i = 0; i < n; i++)
+                for (int j = i + 1; j < n; j++) {
+                    final int a = items[i], b = items[j];
+                    if (!overlap(a, b)) continue;
+                    // report the pair only in the cell containing the top left corner of the intersection
+                    final FloatRect ra = rects[a], rb = rects[b];
+                    if (key(cell(Math.max(ra.left, rb.left)), cell(Math.max(ra.top, rb.top))) == key)
+                        action.accept(objects[a], objects[b]);
+                }
+        }
+        for (int i = 0; i < largeCount; i++) {
+            final int a = large[i];
+            final FloatRect rect = rects[a];
+            query(rect.left, rect.top, rect.right, rect.bottom, other -> {
+                final int b = ids.get(other);
+                if (b != a && (states[b] != LARGE || b > a) && overlap(a, b)) action.accept(objects[a], other);
+            });
+        }
+    }
+
+    /**
+     * Casts a box (or, if its half extents are zero, a ray) from the specified origin along the specified direction.
+     * The cells along the way are visited in order, and every object whose bounds, inflated by the half extents of the
+     * box, are hit before the limit is passed to the visitor, together with the entry point and the normal of the hit
+     * side. The visitor returns the new limit, so the cast stops as soon as the cells are farther than the limit.
+     *
+     * @param limit the maximum multiple of the direction vector to be traveled
+     */
+    void cast(float originX, float originY, float directionX, float directionY, float halfWidth, float halfHeight,
+              float limit, @NotNull CastVisitor visitor) {
+        nextStamp();
+        for (int i = 0; i < largeCount && limit >= 0; i++)
+            limit = castTest(large[i], originX, originY, directionX, directionY, halfWidth, halfHeight, limit, visitor);
+        // the objects hit by the box whose center is in a cell are stored in that cell or in the neighbouring ones
+        final int spanX = halfWidth > 0 ? (int) (halfWidth / cellSize) + 1 : 0,
+                spanY = halfHeight > 0 ? (int) (halfHeight / cellSize) + 1 : 0;
+        int column = cell(originX), row = cell(originY);
+        final int stepX = directionX > 0 ? 1 : -1, stepY = directionY > 0 ? 1 : -1;
+        final float deltaX = directionX != 0 ? cellSize / Math.abs(directionX) : Float.POSITIVE_INFINITY,
+                deltaY = directionY != 0 ? cellSize / Math.abs(directionY) : Float.POSITIVE_INFINITY;
+        float nextX = directionX != 0 ? ((column + (stepX > 0 ? 1 : 0)) * cellSize - originX) / directionX
+                                      : Float.POSITIVE_INFINITY,
+                nextY = directionY != 0 ? ((row + (stepY > 0 ? 1 : 0)) * cellSize - originY) / directionY
+                                        : Float.POSITIVE_INFINITY;
+        while (limit >= 0) {
+            for (int r = row - spanY; r <= row + spanY && limit >= 0; r++)
+                for (int c = column - spanX; c <= column + spanX && limit >= 0; c++) {
+                    final int slot = findSlot(key(c, r));
+                    if (slot < 0) continue;
+                    final int[] items = cellItems[slot];
+                    for (int i = 0; i < cellSizes[slot] && limit >= 0; i++)
+                        limit = castTest(items[i], originX, originY, directionX, directionY,
+                                         halfWidth, halfHeight, limit, visitor);
+                }
+            if (Math.min(nextX, nextY) > limit) return;
+            if (nextX < nextY) {
+                column += stepX;
+                nextX += deltaX;
+            } else {
+                row += stepY;
+                nextY += deltaY;
+            }
+        }
+    }
+
+    private float castTest(int id, float originX, float originY, float directionX, float directionY,
+                           float halfWidth, float halfHeight, float limit, @NotNull CastVisitor visitor) {
+        if (stamps[id] == stamp) return limit;
+        stamps[id] = stamp;
+        final FloatRect rect = rects[id];
+        float entry = 0, exit = limit, normalX = 0, normalY = 0;
+        final float left = rect.left - halfWidth, right = rect.right + halfWidth,
+                top = rect.top - halfHeight, bottom = rect.bottom + halfHeight;
+        if (directionX == 0) {
+            if (originX < left || originX > right) return limit;
+        } else {
+            final float t1 = (left - originX) / directionX, t2 = (right - originX) / directionX;
+            if (Math.min(t1, t2) > entry) {
+                entry = Math.min(t1, t2);
+                normalX = directionX > 0 ? -1 : 1;
+            }
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        if (directionY == 0) {
+            if (originY < top || originY > bottom) return limit;
+        } else {
+            final float t1 = (top - originY) / directionY, t2 = (bottom - originY) / directionY;
+            if (Math.min(t1, t2) > entry) {
+                entry = Math.min(t1, t2);
+                normalX = 0;
+                normalY = directionY > 0 ? -1 : 1;
+            }
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        if (entry > exit) return limit;
+        return visitor.visit(objects[id], entry, normalX, normalY, limit);
+    }
+
+    private void nextStamp() {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    private void test(int id, float left, float top, float right, float bottom,
+                      @NotNull Consumer<? super Drawable> action) {
+        if (stamps[id] == stamp) return;
+        stamps[id] = stamp;
+        final FloatRect rect = rects[id];
+        if (rect.left <= right && rect.right >= left && rect.top <= bottom && rect.bottom >= top)
+            action.accept(objects[id]);
+    }
+
+    private boolean overlap(int a, int b) {
+        final FloatRect ra = rects[a], rb = rects[b];
+        return ra.left < rb.right && ra.right > rb.left && ra.top < rb.bottom && ra.bottom > rb.top;
+    }
+
+    private int add(@NotNull Drawable object) {
+        final int id;
+        if (freeCount > 0) id = freeIds[--freeCount];
+        else {
+            if (idCount == objects.length) {
+                final int capacity = idCount * 2;
+                objects = Arrays.copyOf(objects, capacity);
+                rects = Arrays.copyOf(rects, capacity);
+                ranges = Arrays.copyOf(ranges, capacity * 4);
+                states = Arrays.copyOf(states, capacity);
+                stamps = Arrays.copyOf(stamps, capacity);
+                seen = Arrays.copyOf(seen, capacity);
+            }
+            id = idCount++;
+        }
+        objects[id] = object;
+        rects[id] = null;
+        states[id] = NOT_INDEXED;
+        stamps[id] = 0;
+        ids.put(object, id);
+        return id;
+    }
+
+    private void remove(int id) {
+        unlink(id);
+        ids.remove(objects[id]);
+        objects[id] = null;
+        rects[id] = null;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    private void refresh(int id) {
+        final FloatRect rect = ((BoundsObject) objects[id]).getGlobalBounds();
+        if (rect == rects[id]) return;
+        rects[id] = rect;
+        if (rect == null || Float.isNaN(rect.left + rect.top + rect.right + rect.bottom)) {
+            unlink(id);
+            return;
+        }
+        final int c0 = cell(rect.left), r0 = cell(rect.top), c1 = cell(rect.right), r1 = cell(rect.bottom);
+        final boolean isLarge = (long) (c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS_PER_ENTRY;
+        final int b = 4 * id;
+        if (isLarge ? states[id] == LARGE
+                    : states[id] == IN_CELLS && ranges[b] == c0 && ranges[b + 1] == r0 &&
+                      ranges[b + 2] == c1 && ranges[b + 3] == r1) return;
+        unlink(id);
+        if (isLarge) {
+            if (largeCount == large.length) large = Arrays.copyOf(large, largeCount * 2);
+            large[largeCount++] = id;
+            states[id] = LARGE;
+            return;
+        }
+        ranges[b] = c0;
+        ranges[b + 1] = r0;
+        ranges[b + 2] = c1;
+        ranges[b + 3] = r1;
+        for (int r = r0; r <= r1; r++) for (int c = c0; c <= c1; c++) insert(key(c, r), id);
+        states[id] = IN_CELLS;
+    }
+
+    private void unlink(int id) {
+        if (states[id] == LARGE) {
+            for (int i = 0; i < largeCount; i++)
+                if (large[i] == id) {
+                    large[i] = large[--largeCount];
+                    break;
+                }
+        } else if (states[id] == IN_CELLS) {
+            final int b = 4 * id;
+            for (int r = ranges[b + 1]; r <= ranges[b + 3]; r++)
+                for (int c = ranges[b]; c <= ranges[b + 2]; c++) {
+                    final int slot = findSlot(key(c, r));
+                    final int[] items = cellItems[slot];
+                    for (int i = 0, n = cellSizes[slot]; i < n; i++)
+                        if (items[i] == id) {
+                            items[i] = items[--cellSizes[slot]];
+                            break;
+                        }
+                }
+        }
+        states[id] = NOT_INDEXED;
+    }
+
+    private void insert(long key, int id) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            if (2 * (cellCount + 1) > cellKeys.length) rehash();
+            slot = (int) (mix(key) & (cellKeys.length - 1));
+            while (cellItems[slot] != null) slot = (slot + 1) & (cellKeys.length - 1);
+            cellKeys[slot] = key;
+            cellItems[slot] = new int[4];
+            cellCount++;
+        }
+        if (cellSizes[slot] == cellItems[slot].length)
+            cellItems[slot] = Arrays.copyOf(cellItems[slot], cellSizes[slot] * 2);
+        cellItems[slot][cellSizes[slot]++] = id;
+    }
+
+    private int findSlot(long key) {
+        final int mask = cellKeys.length - 1;
+        for (int slot = (int) (mix(key) & mask); cellItems[slot] != null; slot = (slot + 1) & mask)
+            if (cellKeys[slot] == key) return slot;
+        return -1;
+    }
+
+    private void rehash() {
+        final long[] oldKeys = cellKeys;
+        final int[][] oldItems = cellItems;
+        final int[] oldSizes = cellSizes;
+        int occupied = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) if (oldSizes[slot] > 0) occupied++;
+        int capacity = oldKeys.length;
+        while (2 * (occupied + 1) > capacity / 2) capacity *= 2;
+        cellKeys = new long[capacity];
+        cellItems = new int[capacity][];
+        cellSizes = new int[capacity];
+        cellCount = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldSizes[slot] == 0) continue;
+            int target = (int) (mix(oldKeys[slot]) & (capacity - 1));
+            while (cellItems[target] != null) target = (target + 1) & (capacity - 1);
+            cellKeys[target] = oldKeys[slot];
+            cellItems[target] = oldItems[slot];
+            cellSizes[target] = oldSizes[slot];
+            cellCount++;
+        }
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, Math.floor(coordinate / cellSize)));
+    }
+
+    private static long key(int column, int row) {
+        return (long) column << 32 | (row & 0xffffffffL);
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ key >>> 29;
+    }
+
+    /**
+     * Receives the objects hit by a cast.
+     */
+    interface CastVisitor {
+
+        /**
+         * @param object  the hit object
+         * @param entry   the multiple of the direction vector at which the cast enters the bounds of the object
+         * @param normalX the x coordinate of the normal of the hit side of the bounds
+         * @param normalY the y coordinate of the normal of the hit side of the bounds
+         * @param limit   the current limit of the cast
+         * @return the new limit of the cast, or a negative value to stop it
+         */
+        float visit(@NotNull Drawable object, float entry, float normalX, float normalY, float limit);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game.entities;
+
+import com.rubynaxela.kyanite.game.Scene;
+
+/**
+ * This interface represents an entity whose drawn state can be interpolated between two simulation steps. If the scene
+ * runs with a fixed time step (see {@link Scene#setFixedTimeStep}), the interpolation method is called every frame,
+ * after all the steps of the frame have been performed and before the entity is drawn.
+ */
+public interface InterpolatedEntity {
+
+    /**
+     * This method is called every window frame if the scene runs with a fixed time step. It is designed to be used
+     * for setting the drawn state of the entity (e.g. its position) between the previous and the current step, for
+     * instance as {@code previous + (current - previous) * alpha}, so that the motion stays smooth at any framerate.
+     *
+     * @param alpha the progress between the last and the next step, as a fraction of the time step
+     */
+    void interpolate(float alpha);
+}
@@ -35,14 +35,17 @@ public interface MouseActionListener {
      *     return deltaX * deltaX + deltaY * deltaY &lt;= r * r;
      * }</pre>
      *
+     * The cursor position is given in the coordinates of the render layer (mapped through the window view), or in the
+     * local coordinates of the parent entity if this object is a component of a {@link CompoundEntity}.
+     *
      * @param cursorPosition the mouse cursor position
      * @return whether the specified position is inside the object global bounds
      */
     boolean isCursorInside(@NotNull Vector2i cursorPosition);
 
     /**
-     * Invoked when a mouse button was pressed, this object belongs to the
-     * window's current scene and the {@link #isCursorInside} returned {@code true}.
+     * Invoked when a mouse button was pressed, this object belongs to the window's current scene or HUD
+     * and it is the topmost such object for which the {@link #isCursorInside} returned {@code true}.
      *
      * @param event the event to be processed
      */
@@ -50,11 +53,26 @@ public interface MouseActionListener {
     }
 
     /**
-     * Invoked when a mouse button was released, this object belongs to the
-     * window's current scene and the {@link #isCursorInside} returned {@code true}.
+     * Invoked when a mouse button was released, this object belongs to the window's current scene or HUD
+     * and it is the topmost such object for which the {@link #isCursorInside} returned {@code true}.
      *
      * @param event the event to be processed
      */
     default void mouseButtonReleased(@NotNull MouseButtonEvent event) {
     }
+
+    /**
+     * Invoked when the mouse cursor was moved over this object, i.e. this object became the topmost
+     * listener for which {@link #isCursorInside} returns {@code true}, and it belongs to the window's
+     * current scene or HUD. The hovered object is determined when the mouse cursor moves.
+     */
+    default void cursorEntered() {
+    }
+
+    /**
+     * Invoked when the mouse cursor was moved away from this object (or another object was placed on top
+     * of it under the cursor) after {@link #cursorEntered} had been invoked, or the cursor left the window.
+     */
+    default void cursorLeft() {
+    }
 }
@@ -23,7 +23,8 @@ import com.rubynaxela.kyanite.util.Time;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * Represents a temporary object displaying a sequence of textures during its lifetime.
+ * Represents a temporary object displaying a sequence of textures during its lifetime. Every particle is a separate
+ * shape, so for large numbers of particles sharing the same textures, {@link ParticleSystem} should be used instead.
  */
 public class Particle extends CircleShape implements AnimatedEntity, MovingEntity {
 
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game.entities;
+
+import com.rubynaxela.kyanite.core.IntercomHelper;
+import com.rubynaxela.kyanite.graphics.*;
+import com.rubynaxela.kyanite.math.IntRect;
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
+import com.rubynaxela.kyanite.util.Time;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A pool of particles drawn as a single batch of textured squares. Unlike {@link Particle}, which is a separate shape,
+ * the particles of a {@code ParticleSystem} are stored in primitive arrays preallocated for the specified capacity,
+ * so emitting and expiring particles does not allocate any objects. Every particle displays a sequence of frames, given
+ * as portions of a single atlas texture, during its lifetime. Sample usage:<pre>
+ * final ParticleSystem sparks = new ParticleSystem(10000, atlas, sparkFrames);
+ * sparks.setAcceleration(Vec2.f(0, 200));
+ * scene.add(sparks);
+ * sparks.emit(x, y, vx, vy, 0.5f);</pre>
+ * The particle system is updated by the scene loop, as it implements {@link AnimatedEntity}.
+ */
+public class ParticleSystem implements Drawable, AnimatedEntity {
+
+    private static final int FLOATS_PER_VERTEX = SFMLNativeDrawer.NATIVE_VERTEX_SIZE / 4;
+
+    private final int capacity;
+    private final float[] x, y, vx, vy, age, lifetime;
+    private final ConstTexture atlas;
+    private final int[] frames;
+    private final ByteBuffer vertices;
+    private final FloatBuffer vertexFloats;
+    private final IntBuffer vertexInts;
+    private float accelerationX = 0, accelerationY = 0, particleSize;
+    private int count = 0, color = IntercomHelper.encodeColor(Colors.WHITE), layer = 0;
+
+    /**
+     * Creates a particle system with the specified capacity.
+     *
+     * @param capacity the maximum number of particles alive at the same time
+     * @param atlas    the texture containing the frames of the particles
+     * @param frames   the portions of the atlas texture displayed by every particle during its lifetime (duration
+     *                 of a single frame is {@code lifetime / frames.length}), or none to display the whole texture
+     */
+    public ParticleSystem(int capacity, @NotNull ConstTexture atlas, @NotNull IntRect... frames) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be positive");
+        this.capacity = capacity;
+        this.atlas = atlas;
+        if (frames.length == 0) frames = new IntRect[]{new IntRect(Vec2.i(0, 0), atlas.getSize())};
+        this.frames = new int[frames.length * 4];
+        for (int i = 0; i < frames.length; i++) {
+            this.frames[4 * i] = frames[i].left;
+            this.frames[4 * i + 1] = frames[i].top;
+            this.frames[4 * i + 2] = frames[i].right;
+            this.frames[4 * i + 3] = frames[i].bottom;
+        }
+        particleSize = frames[0].width;
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        age = new float[capacity];
+        lifetime = new float[capacity];
+        vertices = ByteBuffer.allocateDirect(capacity * 4 * SFMLNativeDrawer.NATIVE_VERTEX_SIZE)
+                             .order(ByteOrder.nativeOrder());
+        vertexFloats = vertices.asFloatBuffer();
+        vertexInts = vertices.asIntBuffer();
+    }
+
+    /**
+     * Emits a new particle. If the number of alive particles has reached the capacity, this method does nothing.
+     *
+     * @param x        the X coordinate of the particle center
+     * @param y        the Y coordinate of the particle center
+     * @param vx       the X component of the particle velocity
+     * @param vy       the Y component of the particle velocity
+     * @param lifetime the duration of the particle lifetime (in seconds)
+     * @return {@code true} if the particle was emitted, {@code false} if the particle system is full
+     */
+    public boolean emit(float x, float y, float vx, float vy, float lifetime) {
+        if (count == capacity) return false;
+        if (lifetime <= 0) throw new IllegalArgumentException("The lifetime must be positive");
+        this.x[count] = x;
+        this.y[count] = y;
+        this.vx[count] = vx;
+        this.vy[count] = vy;
+        this.age[count] = 0;
+        this.lifetime[count] = lifetime;
+        count++;
+        return true;
+    }
+
+    /**
+     * Emits a new particle. If the number of alive particles has reached the capacity, this method does nothing.
+     *
+     * @param position the position of the particle center
+     * @param velocity the velocity of the particle
+     * @param lifetime the duration of the particle lifetime
+     * @return {@code true} if the particle was emitted, {@code false} if the particle system is full
+     */
+    public boolean emit(@NotNull Vector2f position, @NotNull Vector2f velocity, @NotNull Time lifetime) {
+        return emit(position.x, position.y, velocity.x, velocity.y, lifetime.asSeconds());
+    }
+
+    /**
+     * Advances the particles by the specified time. The particles whose lifetime has passed are removed and
+     * their slots are reused by the next emitted particles. This method is called by the scene loop.
+     *
+     * @param deltaTime the time to advance the particles by (in seconds)
+     */
+    public void update(float deltaTime) {
+        final float dvx = accelerationX * deltaTime, dvy = accelerationY * deltaTime;
+        for (int i = 0; i < count; ) {
+            final float newAge = age[i] + deltaTime;
+            if (newAge >= lifetime[i]) {
+                final int last = --count;
+                x[i] = x[last];
+                y[i] = y[last];
+                vx[i] = vx[last];
+                vy[i] = vy[last];
+                age[i] = age[last];
+                lifetime[i] = lifetime[last];
+                continue;
+            }
+            age[i] = newAge;
+            vx[i] += dvx;
+            vy[i] += dvy;
+            x[i] += vx[i] * deltaTime;
+            y[i] += vy[i] * deltaTime;
+            i++;
+        }
+    }
+
+    @Override
+    public void animate(@NotNull Time deltaTime, @NotNull Time elapsedTime) {
+        update(deltaTime.asSeconds());
+    }
+
+    /**
+     * Removes all the particles.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * @return the number of alive particles
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the maximum number of particles alive at the same time
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the acceleration applied to all the particles
+     */
+    public Vector2f getAcceleration() {
+        return Vec2.f(accelerationX, accelerationY);
+    }
+
+    /**
+     * Sets the acceleration applied to all the particles, e.g. the gravity.
+     *
+     * @param acceleration the acceleration applied to all the particles
+     */
+    public void setAcceleration(@NotNull Vector2f acceleration) {
+        accelerationX = acceleration.x;
+        accelerationY = acceleration.y;
+    }
+
+    /**
+     * @return the side length of the square drawn for every particle
+     */
+    public float getParticleSize() {
+        return particleSize;
+    }
+
+    /**
+     * Sets the side length of the square drawn for every particle. The default
+     * value is the width of the first frame of the particles in the atlas texture.
+     *
+     * @param particleSize the side length of the square drawn for every particle
+     */
+    public void setParticleSize(float particleSize) {
+        this.particleSize = particleSize;
+    }
+
+    /**
+     * @return the color mask of the particles
+     */
+    public Color getColor() {
+        return IntercomHelper.decodeColor(color);
+    }
+
+    /**
+     * Sets the color mask of the particles. The default color is {@link Colors#WHITE}.
+     *
+     * @param color the color mask of the particles
+     */
+    public void setColor(@NotNull Color color) {
+        this.color = IntercomHelper.encodeColor(color);
+    }
+
+    /**
+     * Draws all the particles as a single batch of quads, using the atlas texture.
+     *
+     * @param target the target to draw the particles on
+     * @param states the current render states
+     */
+    @Override
+    public void draw(@NotNull RenderTarget target, @NotNull RenderStates states) {
+        if (count == 0) return;
+        final int frameCount = frames.length / 4;
+        final float half = particleSize / 2;
+        for (int i = 0; i < count; i++) {
+            final int frame = 4 * Math.min(frameCount - 1, (int) (age[i] / lifetime[i] * frameCount));
+            final float left = x[i] - half, top = y[i] - half, right = x[i] + half, bottom = y[i] + half;
+            final float u0 = frames[frame], v0 = frames[frame + 1], u1 = frames[frame + 2], v1 = frames[frame + 3];
+            final int offset = i * 4 * FLOATS_PER_VERTEX;
+            putVertex(offset, left, top, u0, v0);
+            putVertex(offset + FLOATS_PER_VERTEX, right, top, u1, v0);
+            putVertex(offset + 2 * FLOATS_PER_VERTEX, right, bottom, u1, v1);
+            putVertex(offset + 3 * FLOATS_PER_VERTEX, left, bottom, u0, v1);
+        }
+        SFMLNativeDrawer.drawVertices(vertices, count * 4, PrimitiveType.QUADS, target, new RenderStates(states, atlas));
+    }
+
+    private void putVertex(int offset, float x, float y, float u, float v) {
+        vertexFloats.put(offset, x);
+        vertexFloats.put(offset + 1, y);
+        vertexInts.put(offset + 2, color);
+        vertexFloats.put(offset + 3, u);
+        vertexFloats.put(offset + 4, v);
+    }
+
+    @Override
+    public int getLayer() {
+        return layer;
+    }
+
+    @Override
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
+}
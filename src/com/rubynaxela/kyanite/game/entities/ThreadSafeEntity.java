@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.game.entities;
+
+import com.rubynaxela.kyanite.game.Scene;
+import com.rubynaxela.kyanite.physics.GravityAffected;
+
+/**
+ * Marks an entity that can be animated concurrently with other entities. If the parallel update is enabled in a
+ * scene (see {@link Scene#setParallelUpdateEnabled}), the {@link AnimatedEntity#animate} method of such an entity and
+ * its gravity acceleration (if it implements {@link GravityAffected}) are executed on a worker thread. Therefore, these
+ * methods must only modify the state of the entity itself, must not modify the scene directly (the
+ * {@link Scene#scheduleToAdd}, {@link Scene#scheduleToRemove} and {@link Scene#schedule} methods are safe to use
+ * instead) and should not change the native state of the entity, e.g. its position, which is better done
+ * by setting its velocity, as moving the entities is performed afterwards, on the window thread.
+ */
+public interface ThreadSafeEntity {
+}
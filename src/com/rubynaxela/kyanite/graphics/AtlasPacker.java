@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.graphics;
+
+import com.rubynaxela.kyanite.math.IntRect;
+import com.rubynaxela.kyanite.math.Vector2i;
+import com.rubynaxela.kyanite.system.IOException;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Combines many images into a few texture atlas pages at runtime, so that the objects textured with them share
+ * textures and can be drawn together. The images are registered with {@code String} keys and packed into pages by
+ * {@link #pack} using the MaxRects algorithm (best short side fit), after which every image is available as an
+ * {@link AtlasRegion}. Sample usage:<pre>
+ * final AtlasPacker packer = new AtlasPacker();
+ * packer.add("coin", assets.&lt;Texture&gt;get("kyanite:texture.coin"));
+ * for (int i = 0; i &lt; 8; i++) packer.add("explosion." + i, explosion.getFrame(i));
+ * packer.pack();
+ * packer.get("coin").applyTo(sprite);</pre>
+ * Every image is surrounded by its edge pixels repeated {@linkplain #setExtrusion extrusion} times, so that smooth
+ * textures do not bleed the neighbouring images into the edges of the regions, and then by a {@linkplain #setPadding
+ * padding} of transparent pixels. A page is at most {@link Texture#getMaximumSize} pixels wide and high, unless
+ * a smaller maximum size is set, and as small as the packed images allow.
+ */
+public class AtlasPacker {
+
+    private final Map<String, Image> pending = new LinkedHashMap<>();
+    private final Map<String, AtlasRegion> regions = new HashMap<>();
+    private final List<Texture> pages = new ArrayList<>();
+    private int padding = 1, extrusion = 1, maximumPageSize = 0;
+
+    /**
+     * Registers an image to be packed by the next {@link #pack} call.
+     *
+     * @param key   the key of the image
+     * @param image the image
+     */
+    public void add(@NotNull String key, @NotNull Image image) {
+        if (pending.containsKey(key) || regions.containsKey(key))
+            throw new IllegalArgumentException("An image with the key " + key + " is already registered");
+        pending.put(key, image);
+    }
+
+    /**
+     * Registers the image of a texture to be packed by the next {@link #pack} call. The texture is copied to an
+     * image immediately, so it can be discarded afterwards, e.g. after registering the frames of an animation.
+     *
+     * @param key     the key of the image
+     * @param texture the texture
+     */
+    public void add(@NotNull String key, @NotNull ConstTexture texture) {
+        add(key, texture.copyToImage());
+    }
+
+    /**
+     * Registers an image file to be packed by the next {@link #pack} call.
+     *
+     * @param key  the key of the image
+     * @param path the path to the image file
+     * @throws IOException in case an I/O error occurs
+     */
+    public void add(@NotNull String key, @NotNull Path path) {
+        final Image image = new Image();
+        image.loadFromFile(path);
+        add(key, image);
+    }
+
+    /**
+     * @return the number of transparent pixels between the images
+     */
+    public int getPadding() {
+        return padding;
+    }
+
+    /**
+     * Sets the number of transparent pixels between the images packed by the next {@link #pack} call. Default is 1.
+     *
+     * @param padding the number of transparent pixels between the images
+     */
+    public void setPadding(int padding) {
+        if (padding < 0) throw new IllegalArgumentException("The padding must not be negative");
+        this.padding = padding;
+    }
+
+    /**
+     * @return the number of times the edge pixels of the images are repeated around them
+     */
+    public int getExtrusion() {
+        return extrusion;
+    }
+
+    /**
+     * Sets the number of times the edge pixels of the images packed by the next {@link #pack} call are repeated
+     * around them. Default is 1, which is enough for smooth textures drawn without scaling them down.
+     *
+     * @param extrusion the number of times the edge pixels are repeated
+     */
+    public void setExtrusion(int extrusion) {
+        if (extrusion < 0) throw new IllegalArgumentException("The extrusion must not be negative");
+        this.extrusion = extrusion;
+    }
+
+    /**
+     * @return the maximum width and height of the pages, in pixels
+     */
+    public int getMaximumPageSize() {
+        return maximumPageSize > 0 ? maximumPageSize : Texture.getMaximumSize();
+    }
+
+    /**
+     * Sets the maximum width and height of the pages created by the next {@link #pack} call. It
+     * can not exceed {@link Texture#getMaximumSize}, which is also the default maximum size.
+     *
+     * @param maximumPageSize the maximum width and height of the pages, in pixels
+     */
+    public void setMaximumPageSize(int maximumPageSize) {
+        if (maximumPageSize <= 0 || maximumPageSize > Texture.getMaximumSize())
+            throw new IllegalArgumentException("The maximum page size must be between 1 and " + Texture.getMaximumSize());
+        this.maximumPageSize = maximumPageSize;
+    }
+
+    /**
+     * Packs the images registered since the last call into new pages and creates their textures. The images
+     * are released afterwards, only the regions are kept. The images are packed from the largest one, which
+     * gives denser pages than packing them in the order of registering.
+     *
+     * @throws IllegalArgumentException if an image does not fit in a page of the maximum size
+     */
+    public void pack() {
+        if (pending.isEmpty()) return;
+        final int count = pending.size(), maximumSize = getMaximumPageSize(), border = 2 * extrusion + padding;
+        final String[] keys = pending.keySet().toArray(new String[0]);
+        final Image[] images = pending.values().toArray(new Image[0]);
+        final int[] widths = new int[count], heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            final Vector2i size = images[i].getSize();
+            widths[i] = size.x + border;
+            heights[i] = size.y + border;
+            // the padding after the last image in a row or a column of the page is not needed
+            if (size.x + 2 * extrusion > maximumSize || size.y + 2 * extrusion > maximumSize)
+                throw new IllegalArgumentException("The image " + keys[i] + " of size " + size +
+                                                   " does not fit in a page of size " + maximumSize);
+        }
+        final int[] x = new int[count], y = new int[count], page = new int[count];
+        final int pageCount = packPages(widths, heights, maximumSize, padding, x, y, page);
+        final int[] pageWidths = new int[pageCount], pageHeights = new int[pageCount];
+        for (int i = 0; i < count; i++) {
+            pageWidths[page[i]] = Math.max(pageWidths[page[i]], x[i] + widths[i] - padding);
+            pageHeights[page[i]] = Math.max(pageHeights[page[i]], y[i] + heights[i] - padding);
+        }
+        for (int p = 0; p < pageCount; p++) {
+            final Image canvas = new Image();
+            canvas.create(pageWidths[p], pageHeights[p], Colors.TRANSPARENT);
+            final IntRect[] rects = new IntRect[count];
+            for (int i = 0; i < count; i++) {
+                if (page[i] != p) continue;
+                final Vector2i size = images[i].getSize();
+                rects[i] = new IntRect(x[i] + extrusion, y[i] + extrusion, size.x, size.y);
+                canvas.copy(images[i], rects[i].left, rects[i].top);
+                extrude(canvas, rects[i]);
+            }
+            final Texture texture = new Texture(canvas);
+            pages.add(texture);
+            for (int i = 0; i < count; i++) if (rects[i] != null) regions.put(keys[i], new AtlasRegion(texture, rects[i]));
+        }
+        pending.clear();
+    }
+
+    /**
+     * Finds the region of a packed image.
+     *
+     * @param key the key of the image
+     * @return the region of the image
+     * @throws NullPointerException if no image of the specified key has been packed
+     */
+    @NotNull
+    public AtlasRegion get(@NotNull String key) {
+        final AtlasRegion region = regions.get(key);
+        if (region == null)
+            throw new NullPointerException("Image of key " + key + " either does not exist or has not been packed yet");
+        return region;
+    }
+
+    /**
+     * @param key the key of an image
+     * @return {@code true} if an image of the specified key has been packed
+     */
+    public boolean contains(@NotNull String key) {
+        return regions.containsKey(key);
+    }
+
+    /**
+     * @return an unmodifiable list of the textures of the pages, in the order of creating them
+     */
+    @NotNull
+    public List<ConstTexture> getPages() {
+        return Collections.unmodifiableList(pages);
+    }
+
+    private void extrude(@NotNull Image canvas, @NotNull IntRect rect) {
+        if (rect.width == 0 || rect.height == 0) return;
+        for (int i = 1; i <= extrusion; i++) {
+            canvas.copy(canvas, rect.left - i, rect.top, new IntRect(rect.left, rect.top, 1, rect.height));
+            canvas.copy(canvas, rect.right - 1 + i, rect.top, new IntRect(rect.right - 1, rect.top, 1, rect.height));
+        }
+        final int left = rect.left - extrusion, width = rect.width + 2 * extrusion;
+        for (int i = 1; i <= extrusion; i++) {
+            canvas.copy(canvas, left, rect.top - i, new IntRect(left, rect.top, width, 1));
+            canvas.copy(canvas, left, rect.bottom - 1 + i, new IntRect(left, rect.bottom - 1, width, 1));
+        }
+    }
+
+    /**
+     * Packs the rectangles of the specified sizes into as few pages as possible. Every page is packed into the
+     * smallest power of two square (up to the maximum size) that holds the remaining rectangles, or as many of them as
+     * fit in a page of the maximum size.
+     *
+     * @param padding the padding included in the sizes, which may exceed the edges of the pages
+     * @return the number of the pages
+     */
+    static int packPages(int[] widths, int[] heights, int maximumSize, int padding, int[] x, int[] y, int[] page) {
+        final int count = widths.length;
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            final int bySide = Integer.compare(Math.max(widths[b], heights[b]), Math.max(widths[a], heights[a]));
+            return bySide != 0 ? bySide : Long.compare((long) widths[b] * heights[b], (long) widths[a] * heights[a]);
+        });
+        final boolean[] placed = new boolean[count];
+        int remaining = count, pageCount = 0;
+        while (remaining > 0) {
+            long area = 0;
+            int side = 0;
+            for (final int i : order)
+                if (!placed[i]) {
+                    area += (long) widths[i] * heights[i];
+                    side = Math.max(side, Math.max(widths[i], heights[i]) - padding);
+                }
+            int size = Integer.highestOneBit(Math.max(1, Math.max(side, (int) Math.ceil(Math.sqrt(area)))));
+            if (size < Math.max(side, Math.sqrt(area))) size *= 2;
+            size = Math.min(size, maximumSize);
+            while (true) {
+                final MaxRects bin = new MaxRects(size + padding);
+                final boolean[] fits = new boolean[count];
+                int fitCount = 0;
+                for (final int i : order) {
+                    if (placed[i]) continue;
+                    final long position = bin.insert(widths[i], heights[i]);
+                    if (position < 0) continue;
+                    fits[i] = true;
+                    x[i] = (int) (position >>> 32);
+                    y[i] = (int) position;
+                    fitCount++;
+                }
+                if (fitCount == remaining || size == maximumSize) {
+                    for (int i = 0; i < count; i++)
+                        if (fits[i]) {
+                            placed[i] = true;
+                            page[i] = pageCount;
+                        }
+                    remaining -= fitCount;
+                    break;
+                }
+                size = Math.min(2 * size, maximumSize);
+            }
+            pageCount++;
+        }
+        return pageCount;
+    }
+
+    /**
+     * The free area of a page, as a list of maximal free rectangles.
+     */
+    private static final class MaxRects {
+
+        private final List<int[]> free = new ArrayList<>();
+
+        private MaxRects(int size) {
+            free.add(new int[]{0, 0, size, size});
+        }
+
+        /**
+         * @return the position of the inserted rectangle packed as {@code x << 32 | y}, or -1 if it does not fit
+         */
+        private long insert(int width, int height) {
+            int[] best = null;
+            int bestShort = Integer.MAX_VALUE, bestLong = Integer.MAX_VALUE;
+            for (final int[] rect : free) {
+                if (rect[2] < width || rect[3] < height) continue;
+                final int shortSide = Math.min(rect[2] - width, rect[3] - height),
+                        longSide = Math.max(rect[2] - width, rect[3] - height);
+                if (shortSide < bestShort || shortSide == bestShort && longSide < bestLong) {
+                    best = rect;
+                    bestShort = shortSide;
+                    bestLong = longSide;
+                }
+            }
+            if (best == null) return -1;
+            final int x = best[0], y = best[1];
+            split(x, y, width, height);
+            return (long) x << 32 | y;
+        }
+
+        private void split(int x, int y, int width, int height) {
+            final List<int[]> pieces = new ArrayList<>();
+            for (final Iterator<int[]> iterator = free.iterator(); iterator.hasNext(); ) {
+                final int[] rect = iterator.next();
+                if (x >= rect[0] + rect[2] || x + width <= rect[0] || y >= rect[1] + rect[3] || y + height <= rect[1])
+                    continue;
+                iterator.remove();
+                if (x > rect[0]) pieces.add(new int[]{rect[0], rect[1], x - rect[0], rect[3]});
+                if (x + width < rect[0] + rect[2])
+                    pieces.add(new int[]{x + width, rect[1], rect[0] + rect[2] - x - width, rect[3]});
+                if (y > rect[1]) pieces.add(new int[]{rect[0], rect[1], rect[2], y - rect[1]});
+                if (y + height < rect[1] + rect[3])
+                    pieces.add(new int[]{rect[0], y + height, rect[2], rect[1] + rect[3] - y - height});
+            }
+            // the pieces are parts of maximal rectangles, so only they can be contained in other rectangles
+            for (int i = 0; i < pieces.size(); i++) {
+                final int[] piece = pieces.get(i);
+                boolean contained = false;
+                for (final int[] rect : free)
+                    if (contains(rect, piece)) {
+                        contained = true;
+                        break;
+                    }
+                for (int j = 0; j < pieces.size() && !contained; j++)
+                    if (j != i && contains(pieces.get(j), piece) && (j < i || !contains(piece, pieces.get(j))))
+                        contained = true;
+                if (contained) pieces.remove(i--);
+            }
+            free.addAll(pieces);
+        }
+
+        private static boolean contains(int[] outer, int[] inner) {
+            return inner[0] >= outer[0] && inner[1] >= outer[1] &&
+                   inner[0] + inner[2] <= outer[0] + outer[2] && inner[1] + inner[3] <= outer[1] + outer[3];
+        }
+    }
+}
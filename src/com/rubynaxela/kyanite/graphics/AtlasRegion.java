@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.graphics;
+
+import com.rubynaxela.kyanite.math.IntRect;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A part of a texture atlas page, as returned by {@link AtlasPacker#get}. Many regions share one page, so the objects
+ * textured with them can be drawn together, e.g. by a {@link SpriteBatch}. Sample usage:
+ * <pre>packer.get("kyanite:texture.coin").applyTo(sprite);</pre>
+ *
+ * @param page the texture of the atlas page containing the region
+ * @param rect the area of the region within the page
+ */
+public record AtlasRegion(@NotNull ConstTexture page, @NotNull IntRect rect) {
+
+    /**
+     * Sets the texture of the specified object to the page of this region and its texture rectangle to this region.
+     *
+     * @param object a sprite or a shape
+     */
+    public void applyTo(@NotNull SceneObject object) {
+        object.setTexture(page);
+        object.setTextureRect(rect);
+    }
+}
@@ -34,5 +34,15 @@ public enum CollisionAlgorithm {
      * if the shapes' axis aligned bounding rectangles do not intersect, the time complexity of this operation will
      * also be <i>O(1)</i>. This algorithm performs best for arbitrarily rotated shapes with relatively few edges.
      */
-    EDGES
+    EDGES,
+    /**
+     * Separating axis theorem method - projects both shapes onto the normals of all their edges and reports a collision
+     * if the projections overlap on every axis. Time complexity of this algorithm is <i>O((n+m)^2)</i>, where <i>n</i>
+     * and <i>m</i> are the numbers of edges of the shapes, but the global coordinates of the points and the edge normals
+     * are cached by the shapes until they are moved or changed, and the test ends early if the bounding circles of the
+     * shapes do not intersect. Unlike {@link #EDGES}, it also detects a shape fully contained in the other one, but the
+     * shapes are assumed to be convex (all built-in shapes are, unless a concave polygon is set for a
+     * {@link ConvexShape}). The penetration depth can be obtained with {@link Shape#getMinimumTranslation}.
+     */
+    SAT
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.graphics;
+
+import com.rubynaxela.kyanite.math.IntRect;
+import com.rubynaxela.kyanite.math.Vector2i;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A bit mask of the opaque pixels of a part of an image, used for pixel-perfect collision detection. Every row of the
+ * mask is stored in {@code long} words, one bit per pixel, so that two masks are compared 64 pixels at a time. The
+ * masks of textures created by {@link #of(ConstTexture, IntRect)} are cached per texture and texture rectangle, so
+ * they are shared by all the sprites that use them, and are discarded when the texture is updated or collected.
+ */
+public final class CollisionMask {
+
+    /**
+     * The minimum alpha of the pixels considered opaque by the masks created from textures.
+     */
+    public static final int DEFAULT_ALPHA_THRESHOLD = 128;
+
+    private static final Map<ConstTexture, Map<IntRect, CollisionMask>> cache = new WeakHashMap<>();
+
+    private final int width, height, wordsPerRow;
+    private final long[] bits;
+
+    /**
+     * Creates a mask of the pixels of the specified part of an image whose alpha is at least the specified threshold.
+     * The width and / or height of the rectangle may be negative to indicate that the respective axis should be
+     * flipped, as in {@link Sprite#setTextureRect}.
+     *
+     * @param image          an image
+     * @param area           a part of the image, which must lie within the image
+     * @param alphaThreshold the minimum alpha of the opaque pixels, between 1 and 255
+     */
+    public CollisionMask(@NotNull Image image, @NotNull IntRect area, int alphaThreshold) {
+        if (alphaThreshold < 1 || alphaThreshold > 255)
+            throw new IllegalArgumentException("The alpha threshold must be between 1 and 255");
+        final Vector2i size = image.getSize();
+        final int left = Math.min(area.left, area.left + area.width), top = Math.min(area.top, area.top + area.height);
+        if (left < 0 || top < 0 || left + Math.abs(area.width) > size.x || top + Math.abs(area.height) > size.y)
+            throw new IllegalArgumentException("The area " + area + " exceeds the image of size " + size);
+        width = Math.abs(area.width);
+        height = Math.abs(area.height);
+        wordsPerRow = (width + 63) >>> 6;
+        bits = new long[wordsPerRow * height];
+        for (int y = 0; y < height; y++) {
+            final int sourceY = area.height < 0 ? area.top - 1 - y : area.top + y;
+            for (int x = 0; x < width; x++) {
+                final int sourceX = area.width < 0 ? area.left - 1 - x : area.left + x;
+                if (image.getAlpha(sourceX, sourceY) >= alphaThreshold)
+                    bits[y * wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+            }
+        }
+    }
+
+    /**
+     * Gets the mask of the pixels of the specified part of a texture whose alpha is at least
+     * {@value #DEFAULT_ALPHA_THRESHOLD}. The mask is created on the first call, which downloads the texture
+     * from the graphics card, and then returned from the cache until the texture is updated.
+     *
+     * @param texture a texture
+     * @param area    a part of the texture, or {@link IntRect#EMPTY} for the whole texture
+     * @return the mask of the part of the texture
+     */
+    @NotNull
+    public static CollisionMask of(@NotNull ConstTexture texture, @NotNull IntRect area) {
+        if (area.width == 0 && area.height == 0) area = new IntRect(Vector2i.zero(), texture.getSize());
+        synchronized (cache) {
+            final Map<IntRect, CollisionMask> masks = cache.computeIfAbsent(texture, t -> new HashMap<>());
+            CollisionMask mask = masks.get(area);
+            if (mask == null) {
+                mask = new CollisionMask(texture.copyToImage(), area, DEFAULT_ALPHA_THRESHOLD);
+                masks.put(area, mask);
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * Discards the cached masks of the specified texture.
+     *
+     * @param texture a texture
+     */
+    static void invalidate(@NotNull ConstTexture texture) {
+        synchronized (cache) {
+            cache.remove(texture);
+        }
+    }
+
+    /**
+     * @return the width of this mask in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of this mask in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Tests whether a pixel of this mask is opaque.
+     *
+     * @param x the pixel's X coordinate
+     * @param y the pixel's Y coordinate
+     * @return {@code true} if the pixel is opaque, {@code false} if it is transparent or outside this mask
+     */
+    public boolean isSolid(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return (bits[y * wordsPerRow + (x >>> 6)] >>> (x & 63) & 1) != 0;
+    }
+
+    /**
+     * Tests whether any opaque pixel of this mask overlaps an opaque pixel of another mask.
+     *
+     * @param other   a mask
+     * @param offsetX the horizontal position of the other mask relative to this mask
+     * @param offsetY the vertical position of the other mask relative to this mask
+     * @return {@code true} if the masks overlap
+     */
+    public boolean intersects(@NotNull CollisionMask other, int offsetX, int offsetY) {
+        final int top = Math.max(0, offsetY), bottom = Math.min(height, offsetY + other.height),
+                left = Math.max(0, offsetX), right = Math.min(width, offsetX + other.width);
+        if (top >= bottom || left >= right) return false;
+        // the bits outside the masks are zeros, so only the words containing the overlap need to be compared
+        final int firstWord = left >>> 6, lastWord = (right - 1) >>> 6;
+        for (int y = top; y < bottom; y++) {
+            final int row = y * wordsPerRow, otherY = y - offsetY;
+            for (int word = firstWord; word <= lastWord; word++)
+                if ((bits[row + word] & other.extract(otherY, (word << 6) - offsetX)) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Extracts 64 bits of a row of this mask starting at the specified pixel, which may be negative.
+     */
+    private long extract(int y, int start) {
+        final int word = start >> 6, shift = start & 63, row = y * wordsPerRow;
+        final long low = word >= 0 && word < wordsPerRow ? bits[row + word] : 0;
+        if (shift == 0) return low;
+        final long high = word + 1 >= 0 && word + 1 < wordsPerRow ? bits[row + word + 1] : 0;
+        return low >>> shift | high << (64 - shift);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.graphics;
+
+import com.rubynaxela.kyanite.math.Vector2f;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The vertices of a {@link Shape} in the global coordinates, together with the unit normals of its edges and its
+ * bounding circle, used by the separating axis test. The polygon is recomputed only when the transform or the points
+ * of the shape have changed, which is detected by the identity of the cached transform and points array.
+ */
+final class ConvexPolygon {
+
+    private float[] vertices = new float[0], axes = new float[0], offsets = new float[0];
+    private int count = 0, axisCount = 0;
+    private float centerX, centerY, radius;
+    private Transform transform = null;
+    private Vector2f[] points = null;
+
+    void invalidate() {
+        transform = null;
+    }
+
+    /**
+     * Updates the polygon to the specified points and transform, unless they are the same as in the last update.
+     */
+    void update(@NotNull Vector2f[] points, @NotNull Transform transform) {
+        if (points == this.points && transform == this.transform) return;
+        this.points = points;
+        this.transform = transform;
+        count = points.length;
+        if (vertices.length < 2 * count) {
+            vertices = new float[2 * count];
+            axes = new float[2 * count];
+            offsets = new float[count];
+        }
+        float sumX = 0, sumY = 0;
+        for (int i = 0; i < count; i++) {
+            transform.transformPoint(points[i].x, points[i].y, vertices, 2 * i);
+            sumX += vertices[2 * i];
+            sumY += vertices[2 * i + 1];
+        }
+        centerX = count > 0 ? sumX / count : 0;
+        centerY = count > 0 ? sumY / count : 0;
+        float radiusSquared = 0;
+        axisCount = 0;
+        for (int i = 0; i < count; i++) {
+            final float x = vertices[2 * i], y = vertices[2 * i + 1];
+            radiusSquared = Math.max(radiusSquared, (x - centerX) * (x - centerX) + (y - centerY) * (y - centerY));
+            final int next = 2 * ((i + 1) % count);
+            final float edgeX = vertices[next] - x, edgeY = vertices[next + 1] - y;
+            final float length = (float) Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+            // degenerate edges do not define a separating axis
+            if (length == 0) continue;
+            float nx = -edgeY / length, ny = edgeX / length;
+            // orient the normal outwards, i.e. away from the center
+            if (nx * (centerX - x) + ny * (centerY - y) > 0) {
+                nx = -nx;
+                ny = -ny;
+            }
+            axes[2 * axisCount] = nx;
+            axes[2 * axisCount + 1] = ny;
+            offsets[axisCount] = nx * x + ny * y;
+            axisCount++;
+        }
+        radius = (float) Math.sqrt(radiusSquared);
+    }
+
+    /**
+     * Tests whether the polygons overlap using the separating axis theorem and computes the minimum translation
+     * vector, i.e. the shortest vector by which polygon {@code a} has to be moved so that the polygons only touch.
+     *
+     * @param mtv an array to store the minimum translation vector in, or {@code null} if it is not needed
+     * @return {@code true} if the polygons overlap
+     */
+    static boolean intersect(@NotNull ConvexPolygon a, @NotNull ConvexPolygon b, float[] mtv) {
+        if (a.count == 0 || b.count == 0) return false;
+        final float dx = a.centerX - b.centerX, dy = a.centerY - b.centerY, radii = a.radius + b.radius;
+        if (dx * dx + dy * dy > radii * radii) return false;
+        float minOverlap = Float.POSITIVE_INFINITY, axisX = 0, axisY = 0;
+        for (int polygon = 0; polygon < 2; polygon++) {
+            final ConvexPolygon owner = polygon == 0 ? a : b;
+            for (int i = 0; i < owner.axisCount; i++) {
+                final float nx = owner.axes[2 * i], ny = owner.axes[2 * i + 1];
+                final float overlap = Math.min(a.max(nx, ny) - b.min(nx, ny), b.max(nx, ny) - a.min(nx, ny));
+                if (overlap <= 0) return false;
+                if (overlap < minOverlap) {
+                    minOverlap = overlap;
+                    axisX = nx;
+                    axisY = ny;
+                }
+            }
+        }
+        if (mtv != null) {
+            // point the vector from b towards a, so that it pushes a away from b
+            final float sign = axisX * dx + axisY * dy < 0 ? -1 : 1;
+            mtv[0] = axisX * minOverlap * sign;
+            mtv[1] = axisY * minOverlap * sign;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the point where a ray enters the polygon, using the Cyrus-Beck clipping against the edges.
+     *
+     * @param normal an array to store the unit normal of the entered edge in (or zeros if the
+     *               ray starts inside the polygon), or {@code null} if it is not needed
+     * @return the multiple of the direction vector at which the ray enters the polygon (0 if it starts inside),
+     * or {@link Float#POSITIVE_INFINITY} if the ray misses the polygon
+     */
+    float raycast(float originX, float originY, float directionX, float directionY, float[] normal) {
+        if (count == 0) return Float.POSITIVE_INFINITY;
+        float entry = 0, exit = Float.POSITIVE_INFINITY, normalX = 0, normalY = 0;
+        for (int i = 0; i < axisCount; i++) {
+            final float nx = axes[2 * i], ny = axes[2 * i + 1];
+            final float distance = offsets[i] - (nx * originX + ny * originY), speed = nx * directionX + ny * directionY;
+            if (speed == 0) {
+                if (distance < 0) return Float.POSITIVE_INFINITY;
+                continue;
+            }
+            final float t = distance / speed;
+            if (speed < 0) {
+                if (t > entry) {
+                    entry = t;
+                    normalX = nx;
+                    normalY = ny;
+                }
+            } else if (t < exit) exit = t;
+            if (entry > exit) return Float.POSITIVE_INFINITY;
+        }
+        if (normal != null) {
+            normal[0] = normalX;
+            normal[1] = normalY;
+        }
+        return entry;
+    }
+
+    private float min(float nx, float ny) {
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) min = Math.min(min, vertices[2 * i] * nx + vertices[2 * i + 1] * ny);
+        return min;
+    }
+
+    private float max(float nx, float ny) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) max = Math.max(max, vertices[2 * i] * nx + vertices[2 * i + 1] * ny);
+        return max;
+    }
+}
@@ -89,6 +89,7 @@ public class ConvexShape extends org.jsfml.graphics.ConvexShape {
         for (int i = 0; i < pointCount; i++) points[i] = Vector2f.zero();
         updateOrigin(keepCentered);
         boundsNeedUpdate = true;
+        invalidatePolygon();
     }
 
     /**
@@ -104,6 +105,7 @@ public class ConvexShape extends org.jsfml.graphics.ConvexShape {
         points[index] = point;
         updateOrigin(keepCentered);
         boundsNeedUpdate = true;
+        invalidatePolygon();
     }
 
     @Override
@@ -130,5 +132,6 @@ public class ConvexShape extends org.jsfml.graphics.ConvexShape {
         for (int i = 0; i < points.length; i++) nativeSetPoint(i, points[i].x, points[i].y);
         updateOrigin(keepCentered);
         boundsNeedUpdate = true;
+        invalidatePolygon();
     }
 }
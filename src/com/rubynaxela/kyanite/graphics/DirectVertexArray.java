@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.graphics;
+
+import com.rubynaxela.kyanite.core.IntercomHelper;
+import com.rubynaxela.kyanite.math.FloatRect;
+import com.rubynaxela.kyanite.math.Vector2f;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Defines a drawable set of 2D primitives whose vertices are stored in a direct buffer in the native layout (see
+ * {@link SFMLNativeDrawer#NATIVE_VERTEX_SIZE}) instead of {@link Vertex} objects. The vertices are set by primitive
+ * coordinates and drawn straight from the buffer, without converting or copying them, so this class is suitable for
+ * large meshes (e.g. terrain) and geometry updated every frame. The buffer grows as needed. Sample usage:<pre>
+ * final DirectVertexArray mesh = new DirectVertexArray(PrimitiveType.TRIANGLES);
+ * mesh.add(0, 0, Colors.WHITE, 0, 0);
+ * mesh.add(64, 0, Colors.WHITE, 64, 0);
+ * mesh.add(0, 64, Colors.WHITE, 0, 64);
+ * mesh.setPosition(2, 0, 48);</pre>
+ * The bounds of the vertices are cached, together with the range of the vertices modified since they were computed,
+ * so appending vertices to a large mesh only extends the cached bounds instead of scanning the whole mesh again.
+ */
+public class DirectVertexArray extends BasicTransformable implements Drawable, BoundsObject {
+
+    private static final int FLOATS_PER_VERTEX = SFMLNativeDrawer.NATIVE_VERTEX_SIZE / 4;
+
+    private PrimitiveType primitiveType;
+    private ByteBuffer buffer;
+    private FloatBuffer floats;
+    private IntBuffer ints;
+    private int size = 0, layer = 0;
+    private FloatRect localBounds = FloatRect.EMPTY;
+    // the range of the vertices whose positions are not reflected in the cached bounds,
+    // which have been computed from the first boundedCount vertices
+    private int dirtyFrom = 0, dirtyTo = 0, boundedCount = 0;
+
+    /**
+     * Constructs a new empty vertex array using the {@link PrimitiveType#POINTS} type.
+     */
+    public DirectVertexArray() {
+        this(PrimitiveType.POINTS);
+    }
+
+    /**
+     * Constructs a new empty vertex array.
+     *
+     * @param primitiveType the type of primitives drawn by this vertex array
+     */
+    public DirectVertexArray(@NotNull PrimitiveType primitiveType) {
+        this(primitiveType, 64);
+    }
+
+    /**
+     * Constructs a new empty vertex array with space for the specified number of vertices.
+     *
+     * @param primitiveType the type of primitives drawn by this vertex array
+     * @param capacity      the initial number of vertices that fit in the buffer
+     */
+    public DirectVertexArray(@NotNull PrimitiveType primitiveType, int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("The capacity must not be negative");
+        this.primitiveType = primitiveType;
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Gets the type of primitives drawn by this vertex array.
+     *
+     * @return the type of primitives drawn by this vertex array
+     */
+    public PrimitiveType getPrimitiveType() {
+        return primitiveType;
+    }
+
+    /**
+     * Sets the type of primitives drawn by this vertex array.
+     *
+     * @param primitiveType the type of primitives drawn by this vertex array
+     */
+    public void setPrimitiveType(@NotNull PrimitiveType primitiveType) {
+        this.primitiveType = primitiveType;
+    }
+
+    /**
+     * @return the number of vertices in this vertex array
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if this vertex array contains no vertices
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Changes the number of vertices in this vertex array. The new vertices are
+     * placed at (0, 0), have the texture coordinates (0, 0) and are white.
+     *
+     * @param size the new number of vertices
+     */
+    public void resize(int size) {
+        if (size < 0) throw new IllegalArgumentException("The size must not be negative");
+        ensureCapacity(size);
+        final int white = IntercomHelper.encodeColor(Colors.WHITE);
+        for (int i = this.size; i < size; i++) write(i, 0, 0, white, 0, 0);
+        if (size < this.size) markAllDirty();
+        else markDirty(this.size, size);
+        this.size = size;
+    }
+
+    /**
+     * Removes all the vertices from this vertex array. The buffer is kept for the new vertices.
+     */
+    public void clear() {
+        size = 0;
+        markAllDirty();
+    }
+
+    /**
+     * Appends a vertex to this vertex array.
+     *
+     * @param x     the X coordinate of the position of the vertex
+     * @param y     the Y coordinate of the position of the vertex
+     * @param color the color of the vertex
+     * @param u     the X coordinate of the texture coordinates of the vertex
+     * @param v     the Y coordinate of the texture coordinates of the vertex
+     */
+    public void add(float x, float y, @NotNull Color color, float u, float v) {
+        ensureCapacity(size + 1);
+        write(size, x, y, IntercomHelper.encodeColor(color), u, v);
+        markDirty(size, size + 1);
+        size++;
+    }
+
+    /**
+     * Appends a vertex to this vertex array.
+     *
+     * @param vertex the vertex
+     */
+    public void add(@NotNull Vertex vertex) {
+        add(vertex.position.x, vertex.position.y, vertex.color, vertex.texCoords.x, vertex.texCoords.y);
+    }
+
+    /**
+     * Sets all the attributes of a vertex.
+     *
+     * @param index the index of the vertex
+     * @param x     the X coordinate of the position of the vertex
+     * @param y     the Y coordinate of the position of the vertex
+     * @param color the color of the vertex
+     * @param u     the X coordinate of the texture coordinates of the vertex
+     * @param v     the Y coordinate of the texture coordinates of the vertex
+     */
+    public void set(int index, float x, float y, @NotNull Color color, float u, float v) {
+        checkIndex(index);
+        write(index, x, y, IntercomHelper.encodeColor(color), u, v);
+        markDirty(index, index + 1);
+    }
+
+    /**
+     * Sets the position of a vertex.
+     *
+     * @param index the index of the vertex
+     * @param x     the X coordinate of the position
+     * @param y     the Y coordinate of the position
+     */
+    public void setPosition(int index, float x, float y) {
+        checkIndex(index);
+        final int base = index * FLOATS_PER_VERTEX;
+        floats.put(base, x);
+        floats.put(base + 1, y);
+        markDirty(index, index + 1);
+    }
+
+    /**
+     * Sets the color of a vertex.
+     *
+     * @param index the index of the vertex
+     * @param color the color
+     */
+    public void setColor(int index, @NotNull Color color) {
+        checkIndex(index);
+        ints.put(index * FLOATS_PER_VERTEX + 2, IntercomHelper.encodeColor(color));
+    }
+
+    /**
+     * Sets the color of all the vertices.
+     *
+     * @param color the color
+     */
+    public void setColor(@NotNull Color color) {
+        final int encoded = IntercomHelper.encodeColor(color);
+        for (int i = 0; i < size; i++) ints.put(i * FLOATS_PER_VERTEX + 2, encoded);
+    }
+
+    /**
+     * Sets the texture coordinates of a vertex.
+     *
+     * @param index the index of the vertex
+     * @param u     the X coordinate of the texture coordinates
+     * @param v     the Y coordinate of the texture coordinates
+     */
+    public void setTexCoords(int index, float u, float v) {
+        checkIndex(index);
+        final int base = index * FLOATS_PER_VERTEX;
+        floats.put(base + 3, u);
+        floats.put(base + 4, v);
+    }
+
+    /**
+     * @param index the index of a vertex
+     * @return the X coordinate of the position of the vertex
+     */
+    public float getX(int index) {
+        checkIndex(index);
+        return floats.get(index * FLOATS_PER_VERTEX);
+    }
+
+    /**
+     * @param index the index of a vertex
+     * @return the Y coordinate of the position of the vertex
+     */
+    public float getY(int index) {
+        checkIndex(index);
+        return floats.get(index * FLOATS_PER_VERTEX + 1);
+    }
+
+    /**
+     * Creates a {@link Vertex} object with the attributes of a vertex of this vertex array.
+     *
+     * @param index the index of the vertex
+     * @return a new vertex with the attributes of the vertex
+     */
+    @NotNull
+    public Vertex get(int index) {
+        checkIndex(index);
+        final int base = index * FLOATS_PER_VERTEX;
+        return new Vertex(new Vector2f(floats.get(base), floats.get(base + 1)),
+                          IntercomHelper.decodeColor(ints.get(base + 2)),
+                          new Vector2f(floats.get(base + 3), floats.get(base + 4)));
+    }
+
+    /**
+     * Computes the axis-aligned bounding box of this vertex array, <i>not</i> taking its transformation into account.
+     *
+     * @return the axis-aligned bounding box of this vertex array
+     */
+    @Override
+    public FloatRect getLocalBounds() {
+        if (dirtyFrom >= dirtyTo) return localBounds;
+        // vertices appended since the last computation only extend the bounds, other changes require a full scan
+        final boolean extend = boundedCount > 0 && dirtyFrom >= boundedCount;
+        if (size == 0) localBounds = FloatRect.EMPTY;
+        else {
+            float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY,
+                    right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+            if (extend) {
+                left = localBounds.left;
+                top = localBounds.top;
+                right = localBounds.right;
+                bottom = localBounds.bottom;
+            }
+            for (int i = extend ? dirtyFrom : 0; i < size; i++) {
+                final float x = floats.get(i * FLOATS_PER_VERTEX), y = floats.get(i * FLOATS_PER_VERTEX + 1);
+                if (x < left) left = x;
+                if (x > right) right = x;
+                if (y < top) top = y;
+                if (y > bottom) bottom = y;
+            }
+            localBounds = new FloatRect(left, top, right - left, bottom - top);
+        }
+        boundedCount = size;
+        dirtyFrom = dirtyTo = 0;
+        return localBounds;
+    }
+
+    /**
+     * Computes the axis-aligned bounding box of this vertex array, taking its transformation into account.
+     *
+     * @return the axis-aligned bounding box of this vertex array
+     */
+    @Override
+    public FloatRect getGlobalBounds() {
+        return getTransform().transformRect(getLocalBounds());
+    }
+
+    /**
+     * Draws this vertex array to a render target straight from its buffer.
+     *
+     * @param target the target to draw this vertex array on
+     * @param states the current render states
+     */
+    @Override
+    public void draw(@NotNull RenderTarget target, @NotNull RenderStates states) {
+        if (size == 0) return;
+        final Transform transform = Transform.combine(states.transform, getTransform());
+        SFMLNativeDrawer.drawVertices(buffer, size, primitiveType, target,
+                                      new RenderStates(states.blendMode, transform, states.texture, states.shader));
+    }
+
+    @Override
+    public int getLayer() {
+        return layer;
+    }
+
+    @Override
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
+
+    private void write(int index, float x, float y, int color, float u, float v) {
+        final int base = index * FLOATS_PER_VERTEX;
+        floats.put(base, x);
+        floats.put(base + 1, y);
+        ints.put(base + 2, color);
+        floats.put(base + 3, u);
+        floats.put(base + 4, v);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+
+    private void ensureCapacity(int count) {
+        final int capacity = buffer.capacity() / SFMLNativeDrawer.NATIVE_VERTEX_SIZE;
+        if (count <= capacity) return;
+        final ByteBuffer previous = buffer;
+        allocate(Math.max(count, capacity * 2));
+        buffer.put(0, previous, 0, size * SFMLNativeDrawer.NATIVE_VERTEX_SIZE);
+    }
+
+    private void allocate(int capacity) {
+        buffer = ByteBuffer.allocateDirect(capacity * SFMLNativeDrawer.NATIVE_VERTEX_SIZE).order(ByteOrder.nativeOrder());
+        floats = buffer.asFloatBuffer();
+        ints = buffer.asIntBuffer();
+    }
+
+    private void markDirty(int from, int to) {
+        if (dirtyFrom >= dirtyTo) {
+            dirtyFrom = from;
+            dirtyTo = to;
+        } else {
+            dirtyFrom = Math.min(dirtyFrom, from);
+            dirtyTo = Math.max(dirtyTo, to);
+        }
+    }
+
+    private void markAllDirty() {
+        boundedCount = 0;
+        markDirty(0, 1);
+    }
+}
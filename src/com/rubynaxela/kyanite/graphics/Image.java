@@ -242,7 +242,7 @@ public class Image extends org.jsfml.graphics.Image {
             width = source.size.x;
             height = source.size.y;
         } else {
-            left = Math.max(0, sourceRect.top);
+            left = Math.max(0, sourceRect.left);
             top = Math.max(0, sourceRect.top);
             width = Math.min(sourceRect.width, source.size.x - left);
             height = Math.min(sourceRect.height, source.size.y - top);
@@ -324,6 +324,13 @@ public class Image extends org.jsfml.graphics.Image {
         return IntercomHelper.decodeColor(pixels.get(y * size.x + x));
     }
 
+    /**
+     * Gets the alpha component of a certain pixel, without decoding the whole color or checking the coordinates.
+     */
+    int getAlpha(int x, int y) {
+        return pixels.get(y * size.x + x) >>> 24;
+    }
+
     /**
      * Retrieves a copy of all the pixels of the image in 32-bit ARGB color format. The retrieved
      * image data is compatible to the {@link BufferedImage#TYPE_INT_ARGB} color format.
@@ -27,14 +27,24 @@ import java.nio.IntBuffer;
 @SuppressWarnings("deprecation")
 public final class SFMLNativeDrawer extends org.jsfml.graphics.SFMLNativeDrawer {
 
-    private static final int NATIVE_VERTEX_SIZE = 20;
-    private static final int MAX_VERTICES = 1024;
+    /**
+     * The size of a vertex in the native layout, in bytes: the position (two floats), the color
+     * (an integer encoded by {@link IntercomHelper#encodeColor}) and the texture coordinates (two floats).
+     */
+    public static final int NATIVE_VERTEX_SIZE = 20;
+    private static final int INITIAL_VERTICES = 1024;
 
     private static final ThreadLocal<ByteBuffer> vertexBuffer = ThreadLocal.withInitial(
-            () -> ByteBuffer.allocateDirect(MAX_VERTICES * NATIVE_VERTEX_SIZE).order(ByteOrder.nativeOrder()));
+            () -> ByteBuffer.allocateDirect(INITIAL_VERTICES * NATIVE_VERTEX_SIZE).order(ByteOrder.nativeOrder()));
 
     public static void drawVertices(Vertex[] vertices, PrimitiveType type, RenderTarget target, RenderStates states) {
-        final ByteBuffer vbuf = vertexBuffer.get();
+        ByteBuffer vbuf = vertexBuffer.get();
+        if (vertices.length * NATIVE_VERTEX_SIZE > vbuf.capacity()) {
+            // the buffer grows to the largest array drawn so far, so that it is not reallocated every frame
+            vbuf = ByteBuffer.allocateDirect(Integer.highestOneBit(vertices.length) * 2 * NATIVE_VERTEX_SIZE)
+                             .order(ByteOrder.nativeOrder());
+            vertexBuffer.set(vbuf);
+        }
         final FloatBuffer vfloats = vbuf.asFloatBuffer();
         final IntBuffer vints = vbuf.asIntBuffer();
         for (int i = 0; i < vertices.length; i++) {
@@ -50,6 +60,26 @@ public final class SFMLNativeDrawer extends org.jsfml.graphics.SFMLNativeDrawer
                            IntercomHelper.encodeTransform(states.transform), states.texture, states.shader);
     }
 
+    /**
+     * Draws vertices that are already encoded in the native layout (see {@link #NATIVE_VERTEX_SIZE}) in a direct
+     * buffer of the native byte order, starting at the beginning of the buffer. This avoids creating and re-encoding
+     * {@link Vertex} objects for geometry that is generated or updated directly in the buffer.
+     *
+     * @param buffer the direct buffer containing the encoded vertices
+     * @param count  the number of vertices to draw
+     * @param type   the type of primitives to draw
+     * @param target the render target to draw on
+     * @param states the render states to use for drawing
+     */
+    public static void drawVertices(ByteBuffer buffer, int count, PrimitiveType type, RenderTarget target,
+                                    RenderStates states) {
+        if (!buffer.isDirect()) throw new IllegalArgumentException("The vertex buffer must be a direct buffer");
+        if (count * NATIVE_VERTEX_SIZE > buffer.capacity())
+            throw new IndexOutOfBoundsException("The vertex buffer is too small for " + count + " vertices");
+        nativeDrawVertices(count, buffer, type.ordinal(), target, states.blendMode.ordinal(),
+                           IntercomHelper.encodeTransform(states.transform), states.texture, states.shader);
+    }
+
     static void draw(Drawable drawable, RenderTarget target, RenderStates states) {
         nativeDrawDrawable(drawable, target, states.blendMode.ordinal(), IntercomHelper.encodeTransform(states.transform),
                            states.texture, states.shader);
@@ -46,6 +46,8 @@ public abstract class Shape extends org.jsfml.graphics.Shape implements Drawable
     private Clock animationClock = null;
     private FloatRect localBounds = null, globalBounds = null;
     private int layer = 0;
+    private FloatBuffer pointBuffer = null;
+    private final ConvexPolygon polygon = new ConvexPolygon();
 
     /**
      * Gets the shape's current fill color.
@@ -299,7 +301,9 @@ public abstract class Shape extends org.jsfml.graphics.Shape implements Drawable
     private void updatePoints() {
         if (pointsNeedUpdate) {
             final int n = nativeGetPointCount();
-            final FloatBuffer buffer = ByteBuffer.allocateDirect(2 * n * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            if (pointBuffer == null || pointBuffer.capacity() < 2 * n)
+                pointBuffer = ByteBuffer.allocateDirect(2 * n * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            final FloatBuffer buffer = pointBuffer;
             nativeGetPoints(n, buffer);
             points = new Vector2f[n];
             edges = new FloatLine[n];
@@ -369,6 +373,7 @@ public abstract class Shape extends org.jsfml.graphics.Shape implements Drawable
      * <ul>
      *     <li>{@link CollisionAlgorithm#AABB} - axis-aligned bounding box method</li>
      *     <li>{@link CollisionAlgorithm#EDGES} - intersecting edges method</li>
+     *     <li>{@link CollisionAlgorithm#SAT} - separating axis theorem method</li>
      * </ul>
      *
      * @param other     a shape
@@ -386,9 +391,58 @@ public abstract class Shape extends org.jsfml.graphics.Shape implements Drawable
                         if (e1.intersects(e2)) yield true;
                 yield false;
             }
+            case SAT -> bounds.intersects(otherBounds) && ConvexPolygon.intersect(getPolygon(), other.getPolygon(), null);
         };
     }
 
+    /**
+     * Computes the minimum translation vector of this shape and another shape, i.e. the shortest vector by which this
+     * shape has to be moved so that the shapes do not overlap anymore (they only touch). The shapes are tested using
+     * the {@link CollisionAlgorithm#SAT} method, so they are assumed to be convex.
+     *
+     * @param other a shape
+     * @return the minimum translation vector, or {@code null} if the shapes do not overlap
+     */
+    @Nullable
+    public Vector2f getMinimumTranslation(@NotNull Shape other) {
+        if (!getGlobalBounds().intersects(other.getGlobalBounds())) return null;
+        final float[] mtv = new float[2];
+        return ConvexPolygon.intersect(getPolygon(), other.getPolygon(), mtv) ? new Vector2f(mtv[0], mtv[1]) : null;
+    }
+
+    /**
+     * Finds the point where a ray enters this shape. The shape is assumed to be convex. The ray is specified by
+     * primitive coordinates, so that casting many rays does not create temporary vectors.
+     *
+     * @param originX    the x coordinate of the origin of the ray
+     * @param originY    the y coordinate of the origin of the ray
+     * @param directionX the x coordinate of the direction vector of the ray
+     * @param directionY the y coordinate of the direction vector of the ray
+     * @param normal     an array to store the unit normal of the entered edge in (or zeros if the
+     *                   ray starts inside this shape), or {@code null} if it is not needed
+     * @return the multiple of the direction vector at which the ray enters this shape (0 if it
+     * starts inside), or {@link Float#POSITIVE_INFINITY} if the ray misses this shape
+     */
+    public float castRay(float originX, float originY, float directionX, float directionY, float @Nullable [] normal) {
+        if (normal != null && normal.length < 2)
+            throw new IllegalArgumentException("The normal array must have at least 2 elements");
+        return getPolygon().raycast(originX, originY, directionX, directionY, normal);
+    }
+
+    private ConvexPolygon getPolygon() {
+        if (pointsNeedUpdate) updatePoints();
+        polygon.update(points, getTransform());
+        return polygon;
+    }
+
+    /**
+     * Makes the cached global polygon of this shape be recomputed before its next use. This
+     * method is used by the subclasses that modify the array of points of the shape in place.
+     */
+    protected void invalidatePolygon() {
+        polygon.invalidate();
+    }
+
     /**
      * Gets the text's local bounding rectangle, <i>not</i> taking the text's transformation into account.
      *
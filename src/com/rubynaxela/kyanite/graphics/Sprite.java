@@ -36,7 +36,8 @@ public class Sprite extends org.jsfml.graphics.Sprite implements Drawable, Scene
     private ConstAnimatedTexture animatedTexture = null;
     private Clock animationClock = null;
     private FloatRect localBounds = null, globalBounds = null;
-    private int layer = 0;
+    private int layer = 0, animationFrame = 0;
+    private final float[] pointBuffer = new float[4];
 
     /**
      * Constructs a new sprite without a texture.
@@ -197,6 +198,7 @@ public class Sprite extends org.jsfml.graphics.Sprite implements Drawable, Scene
             nativeSetTexture((Texture) texture.getFrame(0), resetRect);
             this.animatedTexture = texture;
             this.animationClock = new Clock();
+            this.animationFrame = 0;
             this.texture = null;
             if (resetRect) textureRect = IntRect.EMPTY;
             updateOrigin(keepCentered);
@@ -220,6 +222,7 @@ public class Sprite extends org.jsfml.graphics.Sprite implements Drawable, Scene
         final int frame = (int) (animationClock.getTime().asSeconds() / animatedTexture.getFrameDuration())
                           % animatedTexture.getFramesCount();
         nativeSetTexture((Texture) animatedTexture.getFrame(frame), false);
+        animationFrame = frame;
     }
 
     /**
@@ -319,6 +322,64 @@ public class Sprite extends org.jsfml.graphics.Sprite implements Drawable, Scene
         return globalBounds;
     }
 
+    /**
+     * Gets the collision mask of the current texture and texture rectangle of this sprite. The mask
+     * is cached per texture and texture rectangle, so it is shared by all the sprites that use them.
+     *
+     * @return the collision mask of this sprite, or {@code null} if this sprite has no texture
+     * @see CollisionMask#of(ConstTexture, IntRect)
+     */
+    @Nullable
+    public CollisionMask getCollisionMask() {
+        final ConstTexture current = getCurrentTexture();
+        return current != null ? CollisionMask.of(current, textureRect) : null;
+    }
+
+    /**
+     * @return the texture or the current frame of the animated texture of this sprite, or {@code null} if none
+     */
+    @Nullable
+    public ConstTexture getCurrentTexture() {
+        return texture != null ? texture : animatedTexture != null ? animatedTexture.getFrame(animationFrame) : null;
+    }
+
+    /**
+     * Tests whether an opaque pixel of this sprite overlaps an opaque pixel of another sprite. The global bounds of the
+     * sprites are compared first, so the masks are only tested if the bounds intersect. If neither sprite is rotated
+     * nor scaled, the masks are compared 64 pixels at a time; otherwise, every pixel of the intersection of the bounds
+     * is mapped back to the textures of both sprites. Sprites without a texture never intersect anything.
+     *
+     * @param other a sprite
+     * @return {@code true} if the sprites overlap
+     * @see CollisionMask
+     */
+    public boolean intersects(@NotNull Sprite other) {
+        final FloatRect bounds = getGlobalBounds(), otherBounds = other.getGlobalBounds();
+        if (!bounds.intersects(otherBounds)) return false;
+        final CollisionMask mask = getCollisionMask(), otherMask = other.getCollisionMask();
+        if (mask == null || otherMask == null) return false;
+        final Transform transform = getTransform(), otherTransform = other.getTransform();
+        final float[] points = pointBuffer;
+        if (transform.isTranslation() && otherTransform.isTranslation()) {
+            transform.transformPoint(0, 0, points, 0);
+            otherTransform.transformPoint(0, 0, points, 2);
+            return mask.intersects(otherMask, Math.round(points[2] - points[0]), Math.round(points[3] - points[1]));
+        }
+        final Transform inverse = getInverseTransform(), otherInverse = other.getInverseTransform();
+        final int left = (int) Math.floor(Math.max(bounds.left, otherBounds.left)),
+                top = (int) Math.floor(Math.max(bounds.top, otherBounds.top)),
+                right = (int) Math.ceil(Math.min(bounds.right, otherBounds.right)),
+                bottom = (int) Math.ceil(Math.min(bounds.bottom, otherBounds.bottom));
+        for (int y = top; y < bottom; y++)
+            for (int x = left; x < right; x++) {
+                inverse.transformPoint(x + 0.5f, y + 0.5f, points, 0);
+                if (!mask.isSolid((int) Math.floor(points[0]), (int) Math.floor(points[1]))) continue;
+                otherInverse.transformPoint(x + 0.5f, y + 0.5f, points, 2);
+                if (otherMask.isSolid((int) Math.floor(points[2]), (int) Math.floor(points[3]))) return true;
+            }
+        return false;
+    }
+
     @Override
     public void setPosition(@NotNull Vector2f position) {
         super.setPosition(position);
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.graphics;
+
+import com.rubynaxela.kyanite.core.IntercomHelper;
+import com.rubynaxela.kyanite.math.IntRect;
+import com.rubynaxela.kyanite.math.Vector2i;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Draws many sprites with a few draw calls. The quads of the sprites (taking their position, rotation, scale, origin,
+ * texture rectangle and color into account) are gathered in one vertex buffer, and every run of consecutive sprites
+ * sharing a texture is drawn with a single call. The blend mode and the shader are taken from the render states
+ * passed to the batch, so they are shared by all the sprites. The quad of a sprite is only re-encoded when the sprite
+ * has been changed, which is detected by the identity of its cached transform, texture rectangle and color.
+ * <p>
+ * The sprites are drawn in the order of adding them, unless the batch is set to be {@linkplain #setSortedByTexture
+ * sorted by texture}, in which case all the sprites with the same texture are drawn by one call. The sprites added
+ * to a batch should not be added to a render layer, as they would be drawn twice. Sample usage:<pre>
+ * final SpriteBatch particles = new SpriteBatch();
+ * for (int i = 0; i &lt; 5000; i++) particles.add(new Sprite(sheet, new IntRect(16 * (i % 4), 0, 16, 16)));
+ * scene.add(particles);</pre>
+ */
+public class SpriteBatch implements Drawable, Iterable<Sprite> {
+
+    private static final int VERTICES_PER_SPRITE = 4;
+    private static final int SPRITE_SIZE = VERTICES_PER_SPRITE * SFMLNativeDrawer.NATIVE_VERTEX_SIZE;
+
+    private final List<Sprite> sprites = new ArrayList<>();
+    private final float[] corners = new float[2 * VERTICES_PER_SPRITE];
+    private Sprite[] order = new Sprite[0];
+    private ConstTexture[] textures = new ConstTexture[0];
+    private Transform[] transforms = new Transform[0];
+    private IntRect[] rects = new IntRect[0];
+    private Color[] colors = new Color[0];
+    private ByteBuffer buffer = null;
+    private FloatBuffer floats = null;
+    private IntBuffer ints = null;
+    private boolean sortedByTexture = false, orderNeedsUpdate = true;
+    private int drawCallCount = 0, layer = 0;
+
+    /**
+     * Adds a sprite to this batch.
+     *
+     * @param sprite a sprite
+     */
+    public void add(@NotNull Sprite sprite) {
+        sprites.add(Objects.requireNonNull(sprite));
+        orderNeedsUpdate = true;
+    }
+
+    /**
+     * Adds sprites to this batch.
+     *
+     * @param sprites the sprites
+     */
+    public void add(@NotNull Sprite... sprites) {
+        for (final Sprite sprite : sprites) add(sprite);
+    }
+
+    /**
+     * Removes a sprite from this batch.
+     *
+     * @param sprite a sprite
+     * @return {@code true} if this batch contained the sprite
+     */
+    public boolean remove(@NotNull Sprite sprite) {
+        final boolean removed = sprites.remove(sprite);
+        if (removed) orderNeedsUpdate = true;
+        return removed;
+    }
+
+    /**
+     * Removes all the sprites from this batch.
+     */
+    public void clear() {
+        sprites.clear();
+        orderNeedsUpdate = true;
+    }
+
+    /**
+     * @param sprite a sprite
+     * @return {@code true} if this batch contains the sprite
+     */
+    public boolean contains(@NotNull Sprite sprite) {
+        return sprites.contains(sprite);
+    }
+
+    /**
+     * @return the number of sprites in this batch
+     */
+    public int size() {
+        return sprites.size();
+    }
+
+    /**
+     * @return an iterator over the sprites of this batch, in the order of adding them
+     */
+    @NotNull
+    @Override
+    public Iterator<Sprite> iterator() {
+        return Collections.unmodifiableList(sprites).iterator();
+    }
+
+    /**
+     * @return whether the sprites of this batch are grouped by their textures when drawn
+     */
+    public boolean isSortedByTexture() {
+        return sortedByTexture;
+    }
+
+    /**
+     * Sets whether the sprites of this batch are grouped by their textures when drawn. If enabled, every texture
+     * is drawn by exactly one call, but the sprites with different textures no longer overlap in the order of adding
+     * them (the groups are drawn in the order of the first appearance of their textures). Disabled by default.
+     *
+     * @param sortedByTexture whether the sprites should be grouped by their textures
+     */
+    public void setSortedByTexture(boolean sortedByTexture) {
+        if (this.sortedByTexture != sortedByTexture) orderNeedsUpdate = true;
+        this.sortedByTexture = sortedByTexture;
+    }
+
+    /**
+     * @return the number of draw calls issued by the last {@link #draw} call
+     */
+    public int getDrawCallCount() {
+        return drawCallCount;
+    }
+
+    /**
+     * Draws the sprites of this batch to a render target. The animated textures of the sprites are updated first.
+     *
+     * @param target the target to draw this batch on
+     * @param states the current render states
+     */
+    @Override
+    public void draw(@NotNull RenderTarget target, @NotNull RenderStates states) {
+        drawCallCount = 0;
+        for (final Sprite sprite : sprites) if (sprite.getAnimatedTexture() != null) sprite.updateAnimatedTexture();
+        if (!orderNeedsUpdate && sortedByTexture)
+            for (int i = 0; i < order.length; i++)
+                if (order[i].getCurrentTexture() != textures[i]) {
+                    orderNeedsUpdate = true;
+                    break;
+                }
+        if (orderNeedsUpdate) updateOrder();
+        final int count = order.length;
+        for (int i = 0; i < count; i++) encode(i);
+        for (int start = 0; start < count; ) {
+            final ConstTexture texture = textures[start];
+            int end = start + 1;
+            while (end < count && textures[end] == texture) end++;
+            final ByteBuffer run = start == 0 ? buffer : buffer.slice(start * SPRITE_SIZE, (end - start) * SPRITE_SIZE)
+                                                               .order(ByteOrder.nativeOrder());
+            SFMLNativeDrawer.drawVertices(run, (end - start) * VERTICES_PER_SPRITE, PrimitiveType.QUADS, target,
+                                          new RenderStates(states.blendMode, states.transform, texture, states.shader));
+            drawCallCount++;
+            start = end;
+        }
+    }
+
+    private void updateOrder() {
+        final int count = sprites.size();
+        order = sprites.toArray(new Sprite[0]);
+        if (sortedByTexture && count > 1) {
+            // a stable counting sort by the order of the first appearance of the textures
+            final Map<ConstTexture, Integer> groups = new IdentityHashMap<>();
+            final int[] groupOf = new int[count];
+            for (int i = 0; i < count; i++)
+                groupOf[i] = groups.computeIfAbsent(order[i].getCurrentTexture(), t -> groups.size());
+            final int[] starts = new int[groups.size() + 1];
+            for (int i = 0; i < count; i++) starts[groupOf[i] + 1]++;
+            for (int g = 0; g < groups.size(); g++) starts[g + 1] += starts[g];
+            final Sprite[] sorted = new Sprite[count];
+            for (int i = 0; i < count; i++) sorted[starts[groupOf[i]]++] = order[i];
+            order = sorted;
+        }
+        if (buffer == null || buffer.capacity() < count * SPRITE_SIZE) {
+            buffer = ByteBuffer.allocateDirect(Math.max(64, Integer.highestOneBit(Math.max(1, count)) * 2) * SPRITE_SIZE)
+                               .order(ByteOrder.nativeOrder());
+            floats = buffer.asFloatBuffer();
+            ints = buffer.asIntBuffer();
+        }
+        // every quad is re-encoded, as the sprites might have moved within the buffer
+        textures = new ConstTexture[count];
+        transforms = new Transform[count];
+        rects = new IntRect[count];
+        colors = new Color[count];
+        orderNeedsUpdate = false;
+    }
+
+    private void encode(int index) {
+        final Sprite sprite = order[index];
+        final ConstTexture texture = sprite.getCurrentTexture();
+        final Transform transform = sprite.getTransform();
+        final IntRect rect = sprite.getTextureRect();
+        final Color color = sprite.getColor();
+        if (texture == textures[index] && transform == transforms[index] && rect == rects[index] &&
+            color == colors[index]) return;
+        textures[index] = texture;
+        transforms[index] = transform;
+        rects[index] = rect;
+        colors[index] = color;
+        final float left, top, width, height;
+        if (rect.width == 0 && rect.height == 0) {
+            final Vector2i size = texture != null ? texture.getSize() : Vector2i.zero();
+            left = top = 0;
+            width = size.x;
+            height = size.y;
+        } else {
+            left = rect.left;
+            top = rect.top;
+            width = rect.width;
+            height = rect.height;
+        }
+        final float sizeX = Math.abs(width), sizeY = Math.abs(height);
+        transform.transformPoint(0, 0, corners, 0);
+        transform.transformPoint(sizeX, 0, corners, 2);
+        transform.transformPoint(sizeX, sizeY, corners, 4);
+        transform.transformPoint(0, sizeY, corners, 6);
+        final int encodedColor = IntercomHelper.encodeColor(color);
+        final int base = index * SPRITE_SIZE / 4;
+        for (int i = 0; i < VERTICES_PER_SPRITE; i++) {
+            final int vertex = base + i * SFMLNativeDrawer.NATIVE_VERTEX_SIZE / 4;
+            floats.put(vertex, corners[2 * i]);
+            floats.put(vertex + 1, corners[2 * i + 1]);
+            ints.put(vertex + 2, encodedColor);
+            floats.put(vertex + 3, i == 1 || i == 2 ? left + width : left);
+            floats.put(vertex + 4, i >= 2 ? top + height : top);
+        }
+    }
+
+    @Override
+    public int getLayer() {
+        return layer;
+    }
+
+    @Override
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
+}
@@ -375,6 +375,7 @@ public class Texture extends org.jsfml.graphics.Texture implements ConstTexture,
     public void update(@NotNull Image image, int x, int y) {
         image.commit();
         nativeUpdate(image, x, y);
+        CollisionMask.invalidate(this);
     }
 
     /**
@@ -386,6 +387,7 @@ public class Texture extends org.jsfml.graphics.Texture implements ConstTexture,
      */
     public void update(@NotNull BasicWindow window, int x, int y) {
         nativeUpdate(Objects.requireNonNull(window), x, y);
+        CollisionMask.invalidate(this);
     }
 
     /**
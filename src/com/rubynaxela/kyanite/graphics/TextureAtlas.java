@@ -20,6 +20,7 @@ import com.rubynaxela.kyanite.math.Vec2;
 import com.rubynaxela.kyanite.math.Vector2i;
 import com.rubynaxela.kyanite.system.IOException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.InputStream;
@@ -34,11 +35,18 @@ import java.util.stream.IntStream;
  * <pre>new TextureAtlas("chocolate_stages.png").get(32, 0, 16, 16)</pre>
  * The above code will create from the specified file a 16px by 16px {@code Texture},
  * of which the top left corner will correspond to the (32,0) point in the image.
+ * <p>
+ * Every texture created this way is a separate copy of a part of the image on the graphics card. The
+ * {@link #getRegion} methods instead return views of a single texture of the whole atlas, so the objects
+ * textured with them share the texture and can be drawn together, e.g. by a {@link SpriteBatch}:
+ * <pre>new TextureAtlas("chocolate_stages.png").getRegion(32, 0, 48, 16).applyTo(sprite)</pre>
  */
 public class TextureAtlas implements Asset {
 
-    private static final Map<IntRect, Texture> cache = new HashMap<>();
-    private final Image atlas;
+    private final Map<IntRect, Texture> cache = new HashMap<>();
+    private final Map<IntRect, AtlasRegion> regions = new HashMap<>();
+    private Image atlas;
+    private Texture texture = null;
 
     /**
      * Creates a new texture atlas from the source specified by the path.
@@ -90,18 +98,84 @@ public class TextureAtlas implements Asset {
      * @param endX   the X-coordinate of the end point
      * @param endY   the Y-coordinate of the end point
      * @return a {@link Texture} containing image within the bounds of a rectangle of the specified coordinates
+     * @throws IllegalStateException if the texture has not been created yet and the atlas image has been released
      */
     public Texture get(int startX, int startY, int endX, int endY) {
         final int width = endX - startX, height = endY - startY;
         final IntRect bounds = new IntRect(startX, startY, width, height);
-        if (!cache.containsKey(bounds)) {
+        Texture texture = cache.get(bounds);
+        if (texture == null) {
             if (width < 0) throw new IllegalArgumentException("endX must be greater than startX");
             if (height < 0) throw new IllegalArgumentException("endY must be greater than startY");
-            final Texture target = new Texture(atlas, bounds);
-            final Texture texture = new Texture(target);
+            if (atlas == null)
+                throw new IllegalStateException("The atlas image has been released, use the getRegion method instead");
+            texture = new Texture(atlas, bounds);
             cache.put(bounds, texture);
-            return texture;
-        } else return cache.get(bounds);
+        }
+        return texture;
+    }
+
+    /**
+     * Gets the texture of the whole atlas image, which is uploaded to the graphics card on the first call.
+     *
+     * @return the texture of the whole atlas image
+     */
+    @NotNull
+    public ConstTexture getTexture() {
+        if (texture == null) texture = new Texture(atlas);
+        return texture;
+    }
+
+    /**
+     * Gets a region of the texture of the whole atlas within the bounds of a rectangle of the specified coordinates.
+     * Unlike {@link #get}, no texture is created, and all the regions of this atlas share one texture.
+     *
+     * @param startX the X-coordinate of the start point
+     * @param startY the Y-coordinate of the start point
+     * @param endX   the X-coordinate of the end point
+     * @param endY   the Y-coordinate of the end point
+     * @return a region of the atlas within the bounds of a rectangle of the specified coordinates
+     */
+    @NotNull
+    public AtlasRegion getRegion(int startX, int startY, int endX, int endY) {
+        if (endX < startX) throw new IllegalArgumentException("endX must be greater than startX");
+        if (endY < startY) throw new IllegalArgumentException("endY must be greater than startY");
+        return getRegion(new IntRect(startX, startY, endX - startX, endY - startY));
+    }
+
+    /**
+     * Gets a region of the texture of the whole atlas within the bounds of the specified rectangle.
+     *
+     * @param bounds the bounds of the region in the atlas image
+     * @return a region of the atlas within the specified bounds
+     * @see #getRegion(int, int, int, int)
+     */
+    @NotNull
+    public AtlasRegion getRegion(@NotNull IntRect bounds) {
+        AtlasRegion region = regions.get(bounds);
+        if (region == null) {
+            region = new AtlasRegion(getTexture(), bounds);
+            regions.put(bounds, region);
+        }
+        return region;
+    }
+
+    /**
+     * Uploads the texture of the whole atlas (if it has not been uploaded yet) and releases the atlas image kept in the
+     * memory. This saves the memory if only the {@link #getRegion regions} are used afterwards. The textures already
+     * created by the {@link #get} methods are still returned by them, but no new ones can be created.
+     */
+    public void releaseImage() {
+        getTexture();
+        atlas = null;
+    }
+
+    /**
+     * @return the atlas image, or {@code null} if it has been {@linkplain #releaseImage released}
+     */
+    @Nullable
+    public Image getImage() {
+        return atlas;
     }
 
     /**
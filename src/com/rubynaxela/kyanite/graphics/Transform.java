@@ -272,6 +272,26 @@ public final class Transform implements Serializable {
                             data[1] * x + data[5] * y + data[13]);
     }
 
+    /**
+     * @return {@code true} if this transform only translates the points
+     */
+    boolean isTranslation() {
+        return data[0] == 1 && data[1] == 0 && data[4] == 0 && data[5] == 1;
+    }
+
+    /**
+     * Transforms a 2D point using the transformation matrix and stores the result in the specified array.
+     *
+     * @param x      the X coordinate of the point
+     * @param y      the Y coordinate of the point
+     * @param target the array to store the transformed point in
+     * @param index  the index of the X coordinate of the transformed point in the array
+     */
+    void transformPoint(float x, float y, float[] target, int index) {
+        target[index] = data[0] * x + data[4] * y + data[12];
+        target[index + 1] = data[1] * x + data[5] * y + data[13];
+    }
+
     /**
      * Transforms a 2D point using the transformation matrix.
      *
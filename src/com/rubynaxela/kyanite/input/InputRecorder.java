@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.input;
+
+import com.rubynaxela.kyanite.game.GameContext;
+import com.rubynaxela.kyanite.game.Scene;
+import com.rubynaxela.kyanite.math.Vector2i;
+import com.rubynaxela.kyanite.system.IOException;
+import com.rubynaxela.kyanite.util.Time;
+import com.rubynaxela.kyanite.window.BasicWindow;
+import com.rubynaxela.kyanite.window.Window;
+import com.rubynaxela.kyanite.window.event.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Records the input of a game session to a binary log and replays it. While recording, every event polled by the
+ * {@link Window} loop and the results of the real-time input queries ({@link Keyboard#isKeyPressed},
+ * {@link Mouse#isButtonPressed} and {@link Mouse#getPosition}) are written to the log, grouped by the index of the
+ * window frame. While replaying, the window loop receives the recorded events instead of the real ones and the
+ * real-time queries return the recorded results, frame by frame. A game session is reproduced exactly if the scene
+ * is frame-locked (see {@link Scene#setFrameLocked}), so that its time does not depend on the game clock. Whether
+ * the scene displayed when the recording starts is frame-locked, and its fixed time step, are stored in the log, and
+ * while replaying, the same settings are applied to the scene of the window and to every scene set afterwards. This
+ * allows reproducing a game session, e.g. in order to compare the performance of different builds. Sample usage:<pre>
+ * scene.setFixedTimeStep(Time.ms(10));
+ * scene.setFrameLocked(true);
+ * InputRecorder.startRecording(new FileOutputStream("session.bin"));
+ * // ...
+ * InputRecorder.stop();</pre>
+ * The real-time queries are recorded once per frame per key, button and mouse position (relative to the window or to
+ * the desktop), and both while recording and replaying, every query returns the result of the first query of the same
+ * frame, even if an input event handled in the meantime has changed the state. While replaying, the real events of
+ * the window are discarded, except for {@link Event.Type#CLOSED}, so that the window can still be closed.
+ */
+public final class InputRecorder {
+
+    private static final int MAGIC = 0x4B594952, VERSION = 2;
+    private static final int FRAME = 0, END = 1, EVENT = 2, KEY = 3, BUTTON = 4, POSITION = 5, WINDOW_POSITION = 6;
+    private static final Event.Type[] EVENT_TYPES = Event.Type.values();
+    private static final Keyboard.Key[] KEYS = Keyboard.Key.values();
+    private static final Mouse.Button[] BUTTONS = Mouse.Button.values();
+
+    private static final Object lock = new Object();
+    private static volatile Mode mode = Mode.IDLE;
+    private static DataOutputStream output;
+    private static DataInputStream input;
+    private static Runnable replayFinishedAction;
+    private static final ByteArrayOutputStream frameBytes = new ByteArrayOutputStream();
+    private static final DataOutputStream frameOutput = new DataOutputStream(frameBytes);
+    private static final Queue<Event> frameEvents = new ArrayDeque<>();
+    private static final byte[] keyStates = new byte[KEYS.length], buttonStates = new byte[BUTTONS.length];
+    private static Vector2i position, windowPosition;
+    private static boolean positionKnown, windowPositionKnown, replayFrameLocked;
+    private static long replayTimeStep;
+    private static int frame;
+
+    private InputRecorder() {
+    }
+
+    /**
+     * Starts recording the input to the specified stream. The stream is not closed by
+     * the recorder, but it is flushed when the recording is stopped with {@link #stop}.
+     *
+     * @param stream the stream to write the input log to
+     * @throws IllegalStateException if the input is already being recorded or replayed
+     * @throws IOException           if an I/O error occurs
+     */
+    public static void startRecording(@NotNull OutputStream stream) {
+        synchronized (lock) {
+            if (mode != Mode.IDLE) throw new IllegalStateException("The input is already being recorded or replayed");
+            output = new DataOutputStream(new BufferedOutputStream(stream));
+            final Scene scene = GameContext.getInstance() != null && GameContext.getInstance().getWindow() != null
+                                ? GameContext.getInstance().getWindow().getScene() : null;
+            try {
+                output.writeInt(MAGIC);
+                output.writeShort(VERSION);
+                output.writeBoolean(scene != null && scene.isFrameLocked());
+                output.writeLong(scene != null && scene.getFixedTimeStep() != null
+                                 ? scene.getFixedTimeStep().asMicroseconds() : 0);
+            } catch (java.io.IOException e) {
+                throw new IOException(e);
+            }
+            resetFrame();
+            frame = -1;
+            mode = Mode.RECORDING;
+        }
+    }
+
+    /**
+     * Starts replaying the input log from the specified stream. The stream is not closed by the recorder.
+     *
+     * @param stream   the stream to read the input log from
+     * @param onFinish the action to be executed on the window thread when the whole log has been replayed (e.g.
+     *                 closing the window at the end of a benchmark), or {@code null}
+     * @throws IllegalStateException if the input is already being recorded or replayed
+     * @throws IOException           if the stream does not contain an input log or an I/O error occurs
+     */
+    public static void startReplay(@NotNull InputStream stream, @Nullable Runnable onFinish) {
+        synchronized (lock) {
+            if (mode != Mode.IDLE) throw new IllegalStateException("The input is already being recorded or replayed");
+            input = new DataInputStream(new BufferedInputStream(stream));
+            try {
+                if (input.readInt() != MAGIC || input.readShort() != VERSION)
+                    throw new IOException("The stream does not contain a supported input log");
+                replayFrameLocked = input.readBoolean();
+                replayTimeStep = input.readLong();
+            } catch (java.io.IOException e) {
+                throw new IOException(e);
+            }
+            replayFinishedAction = onFinish;
+            resetFrame();
+            position = windowPosition = null;
+            frame = -1;
+            mode = Mode.REPLAYING;
+        }
+        if (GameContext.getInstance() != null && GameContext.getInstance().getWindow() != null)
+            prepareScene(GameContext.getInstance().getWindow().getScene());
+    }
+
+    /**
+     * Applies the time settings of the scene recorded in the replayed log (see {@link Scene#setFrameLocked} and
+     * {@link Scene#setFixedTimeStep}) to the specified scene. This method is called by the window for every scene
+     * set while the input is being replayed and should not be invoked manually.
+     *
+     * @param scene the scene to be displayed
+     */
+    public static void prepareScene(@NotNull Scene scene) {
+        if (mode != Mode.REPLAYING || scene.isHeadless()) return;
+        if (replayTimeStep > 0 && (scene.getFixedTimeStep() == null ||
+                                   scene.getFixedTimeStep().asMicroseconds() != replayTimeStep))
+            scene.setFixedTimeStep(Time.us(replayTimeStep));
+        if (replayFrameLocked) scene.setFrameLocked(true);
+    }
+
+    /**
+     * Stops recording or replaying the input. If the input was being recorded, the log is completed and flushed.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public static void stop() {
+        synchronized (lock) {
+            try {
+                if (mode == Mode.RECORDING) {
+                    writeFrame();
+                    output.writeByte(END);
+                    output.flush();
+                }
+            } catch (java.io.IOException e) {
+                throw new IOException(e);
+            } finally {
+                mode = Mode.IDLE;
+                output = null;
+                input = null;
+                replayFinishedAction = null;
+                frameEvents.clear();
+            }
+        }
+    }
+
+    /**
+     * @return whether the input is being recorded
+     */
+    public static boolean isRecording() {
+        return mode == Mode.RECORDING;
+    }
+
+    /**
+     * @return whether a recorded input is being replayed
+     */
+    public static boolean isReplaying() {
+        return mode == Mode.REPLAYING;
+    }
+
+    /**
+     * @return the index of the current frame of the recording or the replay, starting from 0
+     */
+    public static int getFrameIndex() {
+        return frame;
+    }
+
+    /**
+     * Starts the next frame of the recording or the replay. This method is called
+     * by the window loop before handling the events and should not be invoked manually.
+     */
+    public static void nextFrame() {
+        if (mode == Mode.IDLE) return;
+        Runnable finishedAction = null;
+        synchronized (lock) {
+            try {
+                if (mode == Mode.RECORDING) {
+                    writeFrame();
+                    frame++;
+                } else if (mode == Mode.REPLAYING && !readFrame()) {
+                    finishedAction = replayFinishedAction;
+                    stop();
+                }
+            } catch (java.io.IOException e) {
+                stop();
+                throw new IOException(e);
+            }
+        }
+        if (finishedAction != null) finishedAction.run();
+    }
+
+    /**
+     * Pops the next event from the specified window, or from the input log if it is being replayed, and records it
+     * if the input is being recorded. This method is used by the window loop instead of {@link BasicWindow#pollEvent}.
+     *
+     * @param window the window to poll the events from
+     * @return the next event, or {@code null} if there is none
+     */
+    @Nullable
+    public static Event pollEvent(@NotNull BasicWindow window) {
+        if (mode == Mode.IDLE) return window.pollEvent();
+        synchronized (lock) {
+            if (mode == Mode.REPLAYING) {
+                for (Event event = window.pollEvent(); event != null; event = window.pollEvent())
+                    if (event.type == Event.Type.CLOSED) return event;
+                return frameEvents.poll();
+            }
+            final Event event = window.pollEvent();
+            if (event != null && mode == Mode.RECORDING) {
+                try {
+                    frameOutput.writeByte(EVENT);
+                    writeEvent(event);
+                } catch (java.io.IOException e) {
+                    throw new IOException(e);
+                }
+            }
+            return event;
+        }
+    }
+
+    static boolean isActive() {
+        return mode != Mode.IDLE;
+    }
+
+    static boolean keyPressed(@NotNull Keyboard.Key key, boolean actual) {
+        synchronized (lock) {
+            return queryState(keyStates, KEY, key.ordinal(), actual);
+        }
+    }
+
+    static boolean buttonPressed(@NotNull Mouse.Button button, boolean actual) {
+        synchronized (lock) {
+            return queryState(buttonStates, BUTTON, button.ordinal(), actual);
+        }
+    }
+
+    static Vector2i position(boolean relativeToWindow, @NotNull Vector2i actual) {
+        synchronized (lock) {
+            if (mode == Mode.REPLAYING) {
+                final Vector2i recorded = relativeToWindow ? windowPosition : position;
+                return recorded != null ? recorded : actual;
+            }
+            if (mode != Mode.RECORDING) return actual;
+            // the first result in the frame is returned, as it will be during the replay
+            if (relativeToWindow ? windowPositionKnown : positionKnown)
+                return relativeToWindow ? windowPosition : position;
+            if (relativeToWindow) {
+                windowPositionKnown = true;
+                windowPosition = actual;
+            } else {
+                positionKnown = true;
+                position = actual;
+            }
+            try {
+                frameOutput.writeByte(relativeToWindow ? WINDOW_POSITION : POSITION);
+                frameOutput.writeInt(actual.x);
+                frameOutput.writeInt(actual.y);
+            } catch (java.io.IOException e) {
+                throw new IOException(e);
+            }
+            return actual;
+        }
+    }
+
+    private static boolean queryState(byte[] states, int tag, int index, boolean actual) {
+        if (mode == Mode.REPLAYING) return states[index] == 2;
+        if (mode != Mode.RECORDING) return actual;
+        // the first result in the frame is returned, as it will be during the replay
+        if (states[index] != 0) return states[index] == 2;
+        states[index] = (byte) (actual ? 2 : 1);
+        try {
+            frameOutput.writeByte(tag);
+            frameOutput.writeByte(index);
+            frameOutput.writeBoolean(actual);
+        } catch (java.io.IOException e) {
+            throw new IOException(e);
+        }
+        return actual;
+    }
+
+    private static void resetFrame() {
+        frameBytes.reset();
+        frameEvents.clear();
+        Arrays.fill(keyStates, (byte) 0);
+        Arrays.fill(buttonStates, (byte) 0);
+        positionKnown = windowPositionKnown = false;
+    }
+
+    private static void writeFrame() throws java.io.IOException {
+        if (frame >= 0) {
+            output.writeByte(FRAME);
+            output.writeInt(frame);
+            output.writeInt(frameBytes.size());
+            frameBytes.writeTo(output);
+        }
+        resetFrame();
+    }
+
+    private static boolean readFrame() throws java.io.IOException {
+        resetFrame();
+        final int tag = input.read();
+        if (tag == END || tag < 0) return false;
+        if (tag != FRAME) throw new IOException("Malformed input log");
+        final int index = input.readInt();
+        if (index <= frame) throw new IOException("Malformed input log: frame " + index + " after frame " + frame);
+        frame = index;
+        final int length = input.readInt();
+        final DataInputStream records = new DataInputStream(new ByteArrayInputStream(input.readNBytes(length)));
+        for (int record = records.read(); record >= 0; record = records.read()) {
+            switch (record) {
+                case EVENT -> frameEvents.add(readEvent(records));
+                case KEY -> keyStates[records.readUnsignedByte()] = (byte) (records.readBoolean() ? 2 : 1);
+                case BUTTON -> buttonStates[records.readUnsignedByte()] = (byte) (records.readBoolean() ? 2 : 1);
+                case POSITION -> position = new Vector2i(records.readInt(), records.readInt());
+                case WINDOW_POSITION -> windowPosition = new Vector2i(records.readInt(), records.readInt());
+                default -> throw new IOException("Malformed input log");
+            }
+        }
+        return true;
+    }
+
+    private static void writeEvent(@NotNull Event event) throws java.io.IOException {
+        final DataOutputStream out = frameOutput;
+        out.writeByte(event.type.ordinal());
+        if (event instanceof final SizeEvent e) {
+            out.writeInt(e.size.x);
+            out.writeInt(e.size.y);
+        } else if (event instanceof final TextEvent e) {
+            out.writeInt(e.unicode);
+        } else if (event instanceof final KeyEvent e) {
+            out.writeShort(e.key.ordinal());
+            out.writeByte((e.alt ? 0x01 : 0) | (e.shift ? 0x02 : 0) | (e.control ? 0x04 : 0) | (e.system ? 0x08 : 0));
+        } else if (event instanceof final MouseEvent e) {
+            out.writeInt(e.position.x);
+            out.writeInt(e.position.y);
+            if (e instanceof final MouseWheelEvent wheel) out.writeInt(wheel.delta);
+            else if (e instanceof final MouseButtonEvent button) out.writeByte(button.button.ordinal());
+        } else if (event instanceof final JoystickEvent e) {
+            out.writeByte(e.joystickId);
+            if (e instanceof final JoystickButtonEvent button) out.writeByte(button.button);
+            else if (e instanceof final JoystickMoveEvent move) {
+                out.writeByte(move.joyAxis.ordinal());
+                out.writeFloat(move.position);
+            }
+        }
+    }
+
+    private static Event readEvent(@NotNull DataInputStream in) throws java.io.IOException {
+        final int type = in.readUnsignedByte();
+        if (type >= EVENT_TYPES.length) throw new IOException("Malformed input log");
+        return switch (EVENT_TYPES[type]) {
+            case CLOSED, GAINED_FOCUS, LOST_FOCUS -> new Event(type);
+            case RESIZED -> new SizeEvent(type, in.readInt(), in.readInt());
+            case TEXT_ENTERED -> new TextEvent(type, in.readInt());
+            case KEY_PRESSED, KEY_RELEASED -> {
+                final int keyCode = in.readUnsignedShort() - 1, flags = in.readUnsignedByte();
+                yield new KeyEvent(type, keyCode, (flags & 0x01) != 0, (flags & 0x02) != 0,
+                                   (flags & 0x04) != 0, (flags & 0x08) != 0);
+            }
+            case MOUSE_WHEEL_MOVED -> new MouseWheelEvent(type, in.readInt(), in.readInt(), in.readInt());
+            case MOUSE_BUTTON_PRESSED, MOUSE_BUTTON_RELEASED ->
+                    new MouseButtonEvent(type, in.readInt(), in.readInt(), in.readUnsignedByte());
+            case MOUSE_MOVED, MOUSE_ENTERED, MOUSE_LEFT -> new MouseEvent(type, in.readInt(), in.readInt());
+            case JOYSTICK_BUTTON_PRESSED, JOYSTICK_BUTTON_RELEASED ->
+                    new JoystickButtonEvent(type, in.readUnsignedByte(), in.readUnsignedByte());
+            case JOYSTICK_MOVED -> new JoystickMoveEvent(type, in.readUnsignedByte(), in.readUnsignedByte(), in.readFloat());
+            case JOYSTICK_CONNECETED, JOYSTICK_DISCONNECTED -> new JoystickEvent(type, in.readUnsignedByte());
+        };
+    }
+
+    private enum Mode {
+        IDLE, RECORDING, REPLAYING
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.input;
+
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2i;
+import com.rubynaxela.kyanite.window.BasicWindow;
+import com.rubynaxela.kyanite.window.event.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the state of the keyboard, the mouse and the joysticks captured once per frame. While a window loop is running,
+ * the snapshot is captured before the window events are handled, and the queries of the {@link Keyboard},
+ * {@link Mouse} and {@link Joystick} classes (except the position relative to a window other than the one that
+ * captured the snapshot) are answered from it instead of querying the native input devices every time. Each handled
+ * event updates the snapshot before it is passed to the listeners, so the queries made by a listener reflect the
+ * events handled so far (e.g. a key pressed earlier in the same frame), and all the queries made after the events
+ * (e.g. by the scene loop and the entities) return consistent results. When the window loop ends, the snapshot is
+ * released. To query the devices directly, the snapshot can be disabled with {@link #setEnabled}.
+ */
+public final class InputSnapshot {
+
+    private static final int KEY_COUNT = Keyboard.Key.values().length,
+            BUTTON_COUNT = Mouse.Button.values().length,
+            AXIS_COUNT = Joystick.Axis.values().length;
+
+    private static final long[] keys = new long[(KEY_COUNT + 63) / 64];
+    private static final int[] joystickButtons = new int[Joystick.JOYSTICK_COUNT];
+    private static final float[] joystickAxes = new float[Joystick.JOYSTICK_COUNT * AXIS_COUNT];
+    private static int buttons, connectedJoysticks;
+    private static Vector2i position, windowPosition;
+    private static BasicWindow window;
+    private static boolean enabled = true, captured = false;
+    private static long frame = 0;
+
+    private InputSnapshot() {
+    }
+
+    /**
+     * Captures the current state of the input devices. This method is called every
+     * frame by the window loop, before handling the events, and should not be invoked manually.
+     *
+     * @param relativeTo the window to capture the mouse position relative to, or {@code null}
+     */
+    public static void capture(@Nullable BasicWindow relativeTo) {
+        if (!enabled) return;
+        for (int word = 0; word < keys.length; word++) {
+            long bits = 0;
+            for (int bit = 0, key = word * 64; bit < 64 && key < KEY_COUNT; bit++, key++)
+                if (Keyboard.pollKey(key)) bits |= 1L << bit;
+            keys[word] = bits;
+        }
+        int buttonBits = 0;
+        for (int button = 0; button < BUTTON_COUNT; button++)
+            if (Mouse.pollButton(button)) buttonBits |= 1 << button;
+        buttons = buttonBits;
+        position = Mouse.pollPosition(null);
+        windowPosition = relativeTo != null ? Mouse.pollPosition(relativeTo) : null;
+        window = relativeTo;
+        int connected = 0;
+        for (int joystick = 0; joystick < Joystick.JOYSTICK_COUNT; joystick++) {
+            int joystickButtonBits = 0;
+            if (Joystick.pollConnected(joystick)) {
+                connected |= 1 << joystick;
+                for (int button = 0; button < Joystick.BUTTON_COUNT; button++)
+                    if (Joystick.pollButton(joystick, button)) joystickButtonBits |= 1 << button;
+                for (int axis = 0; axis < AXIS_COUNT; axis++)
+                    joystickAxes[joystick * AXIS_COUNT + axis] = Joystick.pollAxis(joystick, axis);
+            } else for (int axis = 0; axis < AXIS_COUNT; axis++) joystickAxes[joystick * AXIS_COUNT + axis] = 0;
+            joystickButtons[joystick] = joystickButtonBits;
+        }
+        connectedJoysticks = connected;
+        captured = true;
+        frame++;
+    }
+
+    /**
+     * Updates the captured state with the specified event. This method is called by the window loop
+     * for every handled event, before passing it to the listeners, and should not be invoked manually.
+     *
+     * @param event the event being handled
+     */
+    public static void update(@NotNull Event event) {
+        if (!captured) return;
+        switch (event.type) {
+            case KEY_PRESSED, KEY_RELEASED -> {
+                final int key = ((KeyEvent) event).key.ordinal();
+                if (event.type == Event.Type.KEY_PRESSED) keys[key >>> 6] |= 1L << key;
+                else keys[key >>> 6] &= ~(1L << key);
+            }
+            case MOUSE_BUTTON_PRESSED, MOUSE_BUTTON_RELEASED -> {
+                final int button = ((MouseButtonEvent) event).button.ordinal();
+                if (event.type == Event.Type.MOUSE_BUTTON_PRESSED) buttons |= 1 << button;
+                else buttons &= ~(1 << button);
+            }
+            case MOUSE_MOVED -> {
+                final Vector2i eventPosition = ((MouseEvent) event).position;
+                // the event position is relative to the window, so the global position is moved by the same offset
+                if (windowPosition != null) position = Vec2.add(position, Vec2.subtract(eventPosition, windowPosition));
+                if (window != null) windowPosition = eventPosition;
+            }
+            case JOYSTICK_BUTTON_PRESSED, JOYSTICK_BUTTON_RELEASED -> {
+                final JoystickButtonEvent buttonEvent = (JoystickButtonEvent) event;
+                if (event.type == Event.Type.JOYSTICK_BUTTON_PRESSED)
+                    joystickButtons[buttonEvent.joystickId] |= 1 << buttonEvent.button;
+                else joystickButtons[buttonEvent.joystickId] &= ~(1 << buttonEvent.button);
+            }
+            case JOYSTICK_MOVED -> {
+                final JoystickMoveEvent moveEvent = (JoystickMoveEvent) event;
+                joystickAxes[moveEvent.joystickId * AXIS_COUNT + moveEvent.joyAxis.ordinal()] = moveEvent.position;
+            }
+            case JOYSTICK_CONNECETED -> connectedJoysticks |= 1 << ((JoystickEvent) event).joystickId;
+            case JOYSTICK_DISCONNECTED -> {
+                final int joystick = ((JoystickEvent) event).joystickId;
+                connectedJoysticks &= ~(1 << joystick);
+                joystickButtons[joystick] = 0;
+                for (int axis = 0; axis < AXIS_COUNT; axis++) joystickAxes[joystick * AXIS_COUNT + axis] = 0;
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Releases the captured state, so that the input queries are sent to the native input devices until the
+     * next snapshot is captured. This method is called when the window loop ends and should not be invoked manually.
+     */
+    public static void release() {
+        captured = false;
+        window = null;
+    }
+
+    /**
+     * @return whether the input queries are answered from the snapshot when it has been captured
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the snapshot. When the snapshot is disabled, all the input queries are sent
+     * to the native input devices, so they reflect the state at the moment of the query. Enabled by default.
+     *
+     * @param enabled whether the input queries should be answered from the snapshot
+     */
+    public static void setEnabled(boolean enabled) {
+        InputSnapshot.enabled = enabled;
+        if (!enabled) release();
+    }
+
+    /**
+     * @return the number of the snapshots captured so far
+     */
+    public static long getFrameIndex() {
+        return frame;
+    }
+
+    static boolean isCaptured() {
+        return captured;
+    }
+
+    static boolean keyPressed(int key) {
+        return (keys[key >>> 6] & 1L << key) != 0;
+    }
+
+    static boolean buttonPressed(int button) {
+        return (buttons & 1 << button) != 0;
+    }
+
+    static Vector2i position() {
+        return position;
+    }
+
+    static boolean hasPosition(@NotNull BasicWindow relativeTo) {
+        return relativeTo == window;
+    }
+
+    static Vector2i windowPosition() {
+        return windowPosition;
+    }
+
+    static boolean joystickConnected(int joystick) {
+        return (connectedJoysticks & 1 << joystick) != 0;
+    }
+
+    static boolean joystickButtonPressed(int joystick, int button) {
+        return (joystickButtons[joystick] & 1 << button) != 0;
+    }
+
+    static float joystickAxisPosition(int joystick, int axis) {
+        return joystickAxes[joystick * AXIS_COUNT + axis];
+    }
+}
@@ -54,7 +54,7 @@ public final class Joystick extends org.jsfml.window.Joystick {
     public static boolean isConnected(int joystick) {
         if (joystick < 0 || joystick >= JOYSTICK_COUNT)
             throw new IllegalArgumentException("joystick must be between 0 and " + JOYSTICK_COUNT);
-        return nativeIsConnected(joystick);
+        return InputSnapshot.isCaptured() ? InputSnapshot.joystickConnected(joystick) : pollConnected(joystick);
     }
 
     /**
@@ -85,7 +85,8 @@ public final class Joystick extends org.jsfml.window.Joystick {
     }
 
     /**
-     * Checks whether the specified button is currently pressed on a joystick or gamepad.
+     * Checks whether the specified button is currently pressed on a joystick or gamepad. While a window
+     * loop is running, the state is taken from the {@link InputSnapshot} captured for the current frame.
      *
      * @param joystick the index of the joystick in question (must range
      *                 between 0 (inclusive) and {@code #JOYSTICK_COUNT} (exclusive))
@@ -98,11 +99,13 @@ public final class Joystick extends org.jsfml.window.Joystick {
             throw new IllegalArgumentException("Joystick must be between 0 and " + JOYSTICK_COUNT);
         if (button < 0 || button >= BUTTON_COUNT)
             throw new IllegalArgumentException("Button must be between 0 and " + BUTTON_COUNT);
-        return nativeIsButtonPressed(joystick, button);
+        return InputSnapshot.isCaptured() ? InputSnapshot.joystickButtonPressed(joystick, button)
+                                          : pollButton(joystick, button);
     }
 
     /**
-     * Retrieves the current position of the specified axis of a joystick or gamepad.
+     * Retrieves the current position of the specified axis of a joystick or gamepad. While a window loop
+     * is running, the position is taken from the {@link InputSnapshot} captured for the current frame.
      *
      * @param joystick the index of the joystick in question (must range
      *                 between 0 (inclusive) and {@code #JOYSTICK_COUNT} (exclusive))
@@ -113,7 +116,8 @@ public final class Joystick extends org.jsfml.window.Joystick {
     public static float getAxisPosition(int joystick, @NotNull Axis axis) {
         if (joystick < 0 || joystick >= JOYSTICK_COUNT)
             throw new IllegalArgumentException("Joystick must be between 0 and " + JOYSTICK_COUNT);
-        return nativeGetAxisPosition(joystick, axis.ordinal());
+        return InputSnapshot.isCaptured() ? InputSnapshot.joystickAxisPosition(joystick, axis.ordinal())
+                                          : pollAxis(joystick, axis.ordinal());
     }
 
     /**
@@ -125,6 +129,18 @@ public final class Joystick extends org.jsfml.window.Joystick {
         org.jsfml.window.Joystick.update();
     }
 
+    static boolean pollConnected(int joystick) {
+        return nativeIsConnected(joystick);
+    }
+
+    static boolean pollButton(int joystick, int button) {
+        return nativeIsButtonPressed(joystick, button);
+    }
+
+    static float pollAxis(int joystick, int axis) {
+        return nativeGetAxisPosition(joystick, axis);
+    }
+
     /**
      * Enumeration of supported joystick and gamepad axes. The axes in this enumeration are named after
      * common standards. Their representation on a joystick or gamepad may be specific to it. Generally, the
@@ -37,13 +37,24 @@ public final class Keyboard extends org.jsfml.window.Keyboard {
     }
 
     /**
-     * Checks if a certain key is currently pressed on the keyboard.
+     * Checks if a certain key is currently pressed on the keyboard. While a window loop is running,
+     * the state is taken from the {@link InputSnapshot} captured for the current frame.
      *
      * @param key the key in question
      * @return {@code true} if the key is currently being pressed, {@code false} otherwise
      */
     public static boolean isKeyPressed(@NotNull Key key) {
-        return nativeIsKeyPressed(key.ordinal() - 1);
+        if (InputRecorder.isActive()) return InputRecorder.keyPressed(key, !InputRecorder.isReplaying() &&
+                                                                            queryKey(key.ordinal()));
+        return queryKey(key.ordinal());
+    }
+
+    private static boolean queryKey(int key) {
+        return InputSnapshot.isCaptured() ? InputSnapshot.keyPressed(key) : pollKey(key);
+    }
+
+    static boolean pollKey(int key) {
+        return key > 0 && nativeIsKeyPressed(key - 1);
     }
 
     /**
@@ -96,7 +107,7 @@ public final class Keyboard extends org.jsfml.window.Keyboard {
     }
 
     private static boolean[] getDirectionKeys(@NotNull MovementControls controls) {
-        boolean[] keys = new boolean[4];
+        final boolean[] keys = new boolean[4];
         keys[NORTH] = isKeyPressed(controls.getNorthKey());
         keys[EAST] = isKeyPressed(controls.getEastKey());
         keys[SOUTH] = isKeyPressed(controls.getSouthKey());
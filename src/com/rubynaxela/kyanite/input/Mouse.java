@@ -20,6 +20,7 @@ import com.rubynaxela.kyanite.math.Vector2i;
 import com.rubynaxela.kyanite.window.BasicWindow;
 import com.rubynaxela.kyanite.window.event.MouseButtonListener;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
@@ -39,13 +40,16 @@ public final class Mouse extends org.jsfml.window.Mouse {
     }
 
     /**
-     * Checks if a mouse button is currently pressed.
+     * Checks if a mouse button is currently pressed. While a window loop is running,
+     * the state is taken from the {@link InputSnapshot} captured for the current frame.
      *
      * @param button the mouse button in question
      * @return {@code true} if the button is currently being pressed, {@code false} otherwise
      */
     public static boolean isButtonPressed(@NotNull Button button) {
-        return nativeIsButtonPressed(button.ordinal());
+        if (InputRecorder.isActive()) return InputRecorder.buttonPressed(button, !InputRecorder.isReplaying() &&
+                                                                                 queryButton(button.ordinal()));
+        return queryButton(button.ordinal());
     }
 
     /**
@@ -54,7 +58,8 @@ public final class Mouse extends org.jsfml.window.Mouse {
      * @return the absolute position of the mouse cursor on the screen
      */
     public static Vector2i getPosition() {
-        return IntercomHelper.decodeVector2i(nativeGetPosition());
+        final Vector2i position = InputSnapshot.isCaptured() ? InputSnapshot.position() : pollPosition(null);
+        return InputRecorder.isActive() ? InputRecorder.position(false, position) : position;
     }
 
     /**
@@ -73,7 +78,9 @@ public final class Mouse extends org.jsfml.window.Mouse {
      * @return the position of the mouse cursor relative to the window's top left corner
      */
     public static Vector2i getPosition(@NotNull BasicWindow relativeTo) {
-        return IntercomHelper.decodeVector2i(nativeGetPosition(Objects.requireNonNull(relativeTo)));
+        final Vector2i position = InputSnapshot.isCaptured() && InputSnapshot.hasPosition(relativeTo)
+                                  ? InputSnapshot.windowPosition() : pollPosition(Objects.requireNonNull(relativeTo));
+        return InputRecorder.isActive() ? InputRecorder.position(true, position) : position;
     }
 
     /**
@@ -86,6 +93,18 @@ public final class Mouse extends org.jsfml.window.Mouse {
         nativeSetPosition(IntercomHelper.encodeVector2i(position), Objects.requireNonNull(relativeTo));
     }
 
+    private static boolean queryButton(int button) {
+        return InputSnapshot.isCaptured() ? InputSnapshot.buttonPressed(button) : pollButton(button);
+    }
+
+    static boolean pollButton(int button) {
+        return nativeIsButtonPressed(button);
+    }
+
+    static Vector2i pollPosition(@Nullable BasicWindow relativeTo) {
+        return IntercomHelper.decodeVector2i(relativeTo != null ? nativeGetPosition(relativeTo) : nativeGetPosition());
+    }
+
     /**
      * Enumeration of supported mouse buttons.
      */
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.physics;
+
+import com.rubynaxela.kyanite.game.entities.AnimatedEntity;
+import com.rubynaxela.kyanite.game.entities.MovingEntity;
+import com.rubynaxela.kyanite.graphics.Shape;
+import com.rubynaxela.kyanite.graphics.Sprite;
+import com.rubynaxela.kyanite.math.Direction.Axis;
+import com.rubynaxela.kyanite.math.FloatRect;
+import com.rubynaxela.kyanite.math.IntRect;
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
+import com.rubynaxela.kyanite.math.Vector2i;
+import com.rubynaxela.kyanite.util.Time;
+import com.rubynaxela.kyanite.util.Vec2iIterable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A grid of tiles that stops moving objects, for the static geometry of a level. Instead of a separate barrier object
+ * for every tile, the grid stores a 16-bit value per cell (0 for an empty cell, any other value for a solid one, e.g.
+ * the type of the tile), so the cells can be looked up in constant time, and the moving objects only test the cells
+ * along their way. Cell {@code (x, y)} covers the area from {@code (x * tileWidth, y * tileHeight)} (inclusive) to
+ * {@code ((x + 1) * tileWidth, (y + 1) * tileHeight)} (exclusive). Sample usage:<pre>
+ * final CollisionGrid grid = new CollisionGrid(new IntRect(0, 0, 200, 50), Vec2.f(32, 32));
+ * for (final Vector2i wall : level.getWalls()) grid.setSolid(wall.x, wall.y, true);
+ * ...
+ * public void animate(Time deltaTime, Time elapsedTime) {
+ *     grid.stopAtSolidCells(this, deltaTime);
+ * }</pre>
+ */
+public class CollisionGrid {
+
+    // the tolerance (as a fraction of the tile size) within which an object touching a cell is not considered inside it
+    private static final float EPSILON = 1e-4f;
+
+    private final IntRect region;
+    private final float tileWidth, tileHeight;
+    private final short[] cells;
+    private boolean outsideSolid = false;
+
+    /**
+     * Creates an empty collision grid covering the specified cells.
+     *
+     * @param region   the range of the cell coordinates covered by the grid
+     * @param tileSize the size of a cell in the global coordinates
+     */
+    public CollisionGrid(@NotNull IntRect region, @NotNull Vector2f tileSize) {
+        if (region.width <= 0 || region.height <= 0) throw new IllegalArgumentException("The region must not be empty");
+        if (!(tileSize.x > 0 && tileSize.y > 0)) throw new IllegalArgumentException("The tile size must be positive");
+        this.region = region;
+        this.tileWidth = tileSize.x;
+        this.tileHeight = tileSize.y;
+        this.cells = new short[Math.multiplyExact(region.width, region.height)];
+    }
+
+    /**
+     * Creates a collision grid in which the specified cells are solid, covering the smallest region containing them.
+     *
+     * @param solidCells the coordinates of the solid cells, e.g. a {@link Vec2iIterable}
+     * @param tileSize   the size of a cell in the global coordinates
+     * @return a new collision grid
+     */
+    @NotNull
+    public static CollisionGrid of(@NotNull Iterable<Vector2i> solidCells, @NotNull Vector2f tileSize) {
+        int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+        for (final Vector2i cell : solidCells) {
+            left = Math.min(left, cell.x);
+            top = Math.min(top, cell.y);
+            right = Math.max(right, cell.x);
+            bottom = Math.max(bottom, cell.y);
+        }
+        if (left > right) throw new IllegalArgumentException("There are no solid cells");
+        final CollisionGrid grid = new CollisionGrid(IntRect.fromCoordinates(left, top, right + 1, bottom + 1), tileSize);
+        for (final Vector2i cell : solidCells) grid.setSolid(cell.x, cell.y, true);
+        return grid;
+    }
+
+    /**
+     * @return the range of the cell coordinates covered by this grid
+     */
+    public IntRect getRegion() {
+        return region;
+    }
+
+    /**
+     * @return the size of a cell in the global coordinates
+     */
+    public Vector2f getTileSize() {
+        return Vec2.f(tileWidth, tileHeight);
+    }
+
+    /**
+     * @return whether the cells outside the region of this grid are considered solid
+     */
+    public boolean isOutsideSolid() {
+        return outsideSolid;
+    }
+
+    /**
+     * Sets whether the cells outside the region of this grid are considered solid, i.e. whether the
+     * region is closed for the moving objects. By default, the cells outside the region are empty.
+     *
+     * @param outsideSolid {@code true} to consider the cells outside the region solid
+     */
+    public void setOutsideSolid(boolean outsideSolid) {
+        this.outsideSolid = outsideSolid;
+    }
+
+    /**
+     * Gets the value of the specified cell.
+     *
+     * @param x the X coordinate of the cell
+     * @param y the Y coordinate of the cell
+     * @return the value of the cell, 0 if the cell is empty or outside the region of this grid
+     */
+    public int get(int x, int y) {
+        return region.contains(x, y) ? cells[index(x, y)] : 0;
+    }
+
+    /**
+     * Sets the value of the specified cell. The cells with a value other than 0 are solid.
+     *
+     * @param x     the X coordinate of the cell
+     * @param y     the Y coordinate of the cell
+     * @param value the new value of the cell, between {@link Short#MIN_VALUE} and {@link Short#MAX_VALUE}
+     */
+    public void set(int x, int y, int value) {
+        if (!region.contains(x, y)) throw new IndexOutOfBoundsException("The cell " + x + ", " + y + " is outside the grid");
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE)
+            throw new IllegalArgumentException("The value must fit in 16 bits");
+        cells[index(x, y)] = (short) value;
+    }
+
+    /**
+     * Checks whether the specified cell is solid.
+     *
+     * @param x the X coordinate of the cell
+     * @param y the Y coordinate of the cell
+     * @return whether the cell is solid
+     */
+    public boolean isSolid(int x, int y) {
+        return region.contains(x, y) ? cells[index(x, y)] != 0 : outsideSolid;
+    }
+
+    /**
+     * Makes the specified cell solid (with the value of 1) or empty.
+     *
+     * @param x     the X coordinate of the cell
+     * @param y     the Y coordinate of the cell
+     * @param solid whether the cell should be solid
+     */
+    public void setSolid(int x, int y, boolean solid) {
+        set(x, y, solid ? 1 : 0);
+    }
+
+    /**
+     * Sets the value of every specified cell that is inside the region of this grid.
+     *
+     * @param cells the coordinates of the cells, e.g. a {@link Vec2iIterable}
+     * @param value the new value of the cells
+     */
+    public void fill(@NotNull Iterable<Vector2i> cells, int value) {
+        for (final Vector2i cell : cells) if (region.contains(cell.x, cell.y)) set(cell.x, cell.y, value);
+    }
+
+    /**
+     * @param x an X coordinate in the global coordinates
+     * @return the X coordinate of the column containing the specified point
+     */
+    public int columnAt(float x) {
+        return (int) Math.floor(x / tileWidth);
+    }
+
+    /**
+     * @param y a Y coordinate in the global coordinates
+     * @return the Y coordinate of the row containing the specified point
+     */
+    public int rowAt(float y) {
+        return (int) Math.floor(y / tileHeight);
+    }
+
+    /**
+     * Computes how far an axis-aligned box can move horizontally before hitting a solid cell. All
+     * the cells that the box would pass through are tested, so it cannot skip a thin wall.
+     *
+     * @param box the box in the global coordinates
+     * @param dx  the intended horizontal displacement
+     * @return the allowed displacement, which is {@code dx} if no solid cell is in the way, or the
+     * displacement to the edge of the first solid cell otherwise (0 if the box is already touching it)
+     */
+    public float sweepX(@NotNull FloatRect box, float dx) {
+        return sweep(box.left, box.right, box.top, box.bottom, dx, tileWidth, tileHeight, true);
+    }
+
+    /**
+     * Computes how far an axis-aligned box can move vertically before hitting a solid cell. All
+     * the cells that the box would pass through are tested, so it cannot skip a thin floor.
+     *
+     * @param box the box in the global coordinates
+     * @param dy  the intended vertical displacement
+     * @return the allowed displacement, which is {@code dy} if no solid cell is in the way, or the
+     * displacement to the edge of the first solid cell otherwise (0 if the box is already touching it)
+     */
+    public float sweepY(@NotNull FloatRect box, float dy) {
+        return sweep(box.top, box.bottom, box.left, box.right, dy, tileHeight, tileWidth, false);
+    }
+
+    /**
+     * Detects collisions of a moving object with the solid cells of this grid and blocks its movement so that it
+     * stops at them. The movement in the next scene frame is resolved horizontally first, then vertically, so the
+     * object slides along the walls and floors. If a solid cell is in the way, the object is moved to touch it and the
+     * corresponding velocity component is set to 0, so that the scene loop only moves the object along the other axis.
+     *
+     * @param entity    a moving axis-aligned rectangle object ({@link Shape} or {@link Sprite})
+     * @param deltaTime the time difference between the last two scene frames
+     *                  (typically from the {@link AnimatedEntity#animate} method)
+     * @return the axis of the blocked movement, {@link Axis#BOTH} if the movement was blocked on both axes,
+     * or {@code null} if the object did not hit any solid cell
+     */
+    @Nullable
+    public Axis stopAtSolidCells(@NotNull MovingEntity entity, @NotNull Time deltaTime) {
+        final FloatRect box = Collisions.extractBounds(entity);
+        final Vector2f velocity = entity.getVelocity();
+        final float dt = deltaTime.asSeconds(), dx = velocity.x * dt, dy = velocity.y * dt;
+        final float allowedX = sweep(box.left, box.right, box.top, box.bottom, dx, tileWidth, tileHeight, true);
+        final boolean blockedX = allowedX != dx;
+        final float allowedY = sweep(box.top, box.bottom, box.left + allowedX, box.right + allowedX, dy,
+                                     tileHeight, tileWidth, false);
+        final boolean blockedY = allowedY != dy;
+        if (!blockedX && !blockedY) return null;
+        entity.move(Vec2.f(blockedX ? allowedX : 0, blockedY ? allowedY : 0));
+        entity.setVelocity(Vec2.f(blockedX ? 0 : velocity.x, blockedY ? 0 : velocity.y));
+        return blockedX && blockedY ? Axis.BOTH : blockedX ? Axis.X : Axis.Y;
+    }
+
+    /**
+     * Visits the cells crossed by the line segment between two points, in order from the first point, using the
+     * digital differential analyzer algorithm. The traversal stops when the visitor returns {@code false}.
+     *
+     * @param x0      the X coordinate of the start point in the global coordinates
+     * @param y0      the Y coordinate of the start point in the global coordinates
+     * @param x1      the X coordinate of the end point in the global coordinates
+     * @param y1      the Y coordinate of the end point in the global coordinates
+     * @param visitor the action performed for every crossed cell
+     * @return {@code true} if all the crossed cells were visited, {@code false} if the visitor stopped the traversal
+     */
+    public boolean traverse(float x0, float y0, float x1, float y1, @NotNull CellVisitor visitor) {
+        return traverse(x0, y0, x1, y1, visitor, false);
+    }
+
+    /**
+     * Checks whether the line segment between two points does not cross any solid cell.
+     *
+     * @param x0 the X coordinate of the start point in the global coordinates
+     * @param y0 the Y coordinate of the start point in the global coordinates
+     * @param x1 the X coordinate of the end point in the global coordinates
+     * @param y1 the Y coordinate of the end point in the global coordinates
+     * @return {@code true} if none of the cells crossed by the segment is solid
+     */
+    public boolean hasLineOfSight(float x0, float y0, float x1, float y1) {
+        return traverse(x0, y0, x1, y1, null, false);
+    }
+
+    /**
+     * Checks whether the line between the centers of two cells does not cross any solid cell (other than the two cells).
+     *
+     * @param from the coordinates of the first cell
+     * @param to   the coordinates of the second cell
+     * @return {@code true} if none of the cells between the specified cells is solid
+     */
+    public boolean hasLineOfSight(@NotNull Vector2i from, @NotNull Vector2i to) {
+        return traverse((from.x + 0.5f) * tileWidth, (from.y + 0.5f) * tileHeight,
+                        (to.x + 0.5f) * tileWidth, (to.y + 0.5f) * tileHeight, null, true);
+    }
+
+    /**
+     * Walks the cells crossed by a line segment. If no visitor is specified, the walk stops at the first solid cell
+     * (optionally skipping the first and the last cell), so that the line of sight is tested without any allocation.
+     */
+    private boolean traverse(float x0, float y0, float x1, float y1, @Nullable CellVisitor visitor, boolean skipEnds) {
+        int x = columnAt(x0), y = rowAt(y0);
+        final int endX = columnAt(x1), endY = rowAt(y1);
+        final float dx = x1 - x0, dy = y1 - y0;
+        final int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0, stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        // the fractions of the segment at which the next column and row boundaries are crossed
+        final float deltaX = stepX != 0 ? tileWidth / Math.abs(dx) : Float.POSITIVE_INFINITY,
+                deltaY = stepY != 0 ? tileHeight / Math.abs(dy) : Float.POSITIVE_INFINITY;
+        float nextX = stepX > 0 ? ((x + 1) * tileWidth - x0) / dx : stepX < 0 ? (x * tileWidth - x0) / dx
+                                                                              : Float.POSITIVE_INFINITY;
+        float nextY = stepY > 0 ? ((y + 1) * tileHeight - y0) / dy : stepY < 0 ? (y * tileHeight - y0) / dy
+                                                                                 : Float.POSITIVE_INFINITY;
+        int remaining = Math.abs(endX - x) + Math.abs(endY - y);
+        if (visitor != null ? !visitor.visit(x, y) : !skipEnds && isSolid(x, y)) return false;
+        while (remaining-- > 0) {
+            if (nextX < nextY) {
+                x += stepX;
+                nextX += deltaX;
+            } else {
+                y += stepY;
+                nextY += deltaY;
+            }
+            if (visitor != null ? !visitor.visit(x, y) : !(skipEnds && remaining == 0) && isSolid(x, y)) return false;
+        }
+        return true;
+    }
+
+    private float sweep(float min, float max, float crossMin, float crossMax, float delta,
+                        float tileSize, float crossTileSize, boolean horizontal) {
+        if (delta == 0) return 0;
+        final int cross0 = (int) Math.floor(crossMin / crossTileSize + EPSILON),
+                cross1 = (int) Math.ceil(crossMax / crossTileSize - EPSILON) - 1;
+        if (delta > 0) {
+            final int first = (int) Math.ceil(max / tileSize - EPSILON), last = (int) Math.ceil((max + delta) / tileSize) - 1;
+            for (int line = first; line <= last; line++)
+                if (isLineSolid(line, cross0, cross1, horizontal)) return Math.max(0, line * tileSize - max);
+        } else {
+            final int first = (int) Math.floor(min / tileSize + EPSILON) - 1, last = (int) Math.floor((min + delta) / tileSize);
+            for (int line = first; line >= last; line--)
+                if (isLineSolid(line, cross0, cross1, horizontal)) return Math.min(0, (line + 1) * tileSize - min);
+        }
+        return delta;
+    }
+
+    private boolean isLineSolid(int line, int cross0, int cross1, boolean column) {
+        for (int cross = cross0; cross <= cross1; cross++)
+            if (column ? isSolid(line, cross) : isSolid(cross, line)) return true;
+        return false;
+    }
+
+    private int index(int x, int y) {
+        return (y - region.top) * region.width + x - region.left;
+    }
+
+    /**
+     * An action performed for the cells visited by {@link CollisionGrid#traverse}.
+     */
+    @FunctionalInterface
+    public interface CellVisitor {
+
+        /**
+         * Visits a cell.
+         *
+         * @param x the X coordinate of the cell
+         * @param y the Y coordinate of the cell
+         * @return {@code true} to continue the traversal, {@code false} to stop it
+         */
+        boolean visit(int x, int y);
+    }
+}
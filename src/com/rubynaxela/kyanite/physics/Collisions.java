@@ -18,7 +18,6 @@ import com.rubynaxela.kyanite.game.entities.AnimatedEntity;
 import com.rubynaxela.kyanite.game.entities.MovingEntity;
 import com.rubynaxela.kyanite.graphics.Shape;
 import com.rubynaxela.kyanite.graphics.Sprite;
-import com.rubynaxela.kyanite.math.Direction;
 import com.rubynaxela.kyanite.math.Direction.Axis;
 import com.rubynaxela.kyanite.math.FloatRect;
 import com.rubynaxela.kyanite.math.Vec2;
@@ -28,9 +27,6 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
-import java.util.List;
-
 /**
  * Methods useful for collision detection.
  */
@@ -69,15 +65,13 @@ public class Collisions {
      */
     public static void shiftToEdge(@NotNull MovingEntity moving, @NotNull Object stationary) {
         final FloatRect movingRect = extractBounds(moving), stationaryRect = extractBounds(stationary);
-        final Shift shiftUp = new Shift(movingRect.bottom - stationaryRect.top, Direction.NORTH);
-        final Shift shiftRight = new Shift(stationaryRect.right - movingRect.left, Direction.EAST);
-        final Shift shiftDown = new Shift(stationaryRect.bottom - movingRect.top, Direction.SOUTH);
-        final Shift shiftLeft = new Shift(movingRect.right - stationaryRect.left, Direction.WEST);
-        final Shift shift = Collections.min(List.of(shiftUp, shiftRight, shiftDown, shiftLeft));
-        if (shift.direction == Direction.NORTH) moving.move(Vec2.f(0, -shift.offset));
-        else if (shift.direction == Direction.EAST) moving.move(Vec2.f(shift.offset, 0));
-        else if (shift.direction == Direction.SOUTH) moving.move(Vec2.f(0, shift.offset));
-        else if (shift.direction == Direction.WEST) moving.move(Vec2.f(-shift.offset, 0));
+        final float up = movingRect.bottom - stationaryRect.top, right = stationaryRect.right - movingRect.left,
+                down = stationaryRect.bottom - movingRect.top, left = movingRect.right - stationaryRect.left;
+        final float shift = Math.min(Math.min(up, right), Math.min(down, left));
+        if (shift == up) moving.move(Vec2.f(0, -up));
+        else if (shift == right) moving.move(Vec2.f(right, 0));
+        else if (shift == down) moving.move(Vec2.f(0, down));
+        else moving.move(Vec2.f(-left, 0));
     }
 
     @NotNull
@@ -102,12 +96,4 @@ public class Collisions {
     private static boolean collisionVertical(@NotNull FloatRect a, float dy, @NotNull FloatRect b) {
         return a.top + dy < b.bottom && a.bottom + dy > b.top && !(a.left >= b.right || a.right <= b.left);
     }
-
-    private record Shift(float offset, @NotNull Direction direction) implements Comparable<Shift> {
-
-        @Override
-        public int compareTo(@NotNull Shift other) {
-            return Float.compare(offset, other.offset);
-        }
-    }
 }
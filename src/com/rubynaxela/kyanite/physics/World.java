@@ -0,0 +1,654 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.physics;
+
+import com.rubynaxela.kyanite.game.entities.MovingEntity;
+import com.rubynaxela.kyanite.graphics.BoundsObject;
+import com.rubynaxela.kyanite.graphics.Transformable;
+import com.rubynaxela.kyanite.math.Direction;
+import com.rubynaxela.kyanite.math.FloatRect;
+import com.rubynaxela.kyanite.math.Vec2;
+import com.rubynaxela.kyanite.math.Vector2f;
+import com.rubynaxela.kyanite.util.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A set of axis-aligned rectangular bodies simulated together. Unlike {@link MovingEntity} and {@link GravityAffected}
+ * objects, which are moved one by one by the scene loop, the bodies of a world are stored in primitive arrays and
+ * every {@link #step} integrates all of them in a single pass, without allocating any objects. The dynamic bodies are
+ * stopped by the static ones using the swept (continuous) collision detection, i.e. the time of impact is computed
+ * along the whole movement in the step, so fast bodies do not pass through thin barriers even at low framerates.
+ * After every step, the positions of the dynamic bodies are written to the objects they were created for. Sample
+ * usage:<pre>
+ * final World world = new World();
+ * for (final RectangleShape platform : platforms) world.addStatic(platform);
+ * final int player = world.addDynamic(playerSprite, 1000);
+ * ...
+ * protected void loop() {
+ *     if (jumpPressed &amp;&amp; world.isTouching(player, Direction.SOUTH)) world.setVelocity(player, 200, -500);
+ *     world.step(getDeltaTime());
+ * }</pre>
+ * The bodies are identified by integer handles returned when they are added. The objects of the dynamic bodies
+ * should not be moved by other means (e.g. they should not implement {@link MovingEntity}), as their positions are
+ * overwritten by every step.
+ * <p>
+ * Dynamic bodies do not stop each other, but if a {@link ContactListener} is set, the pairs of dynamic bodies that
+ * meet during a step are found with a swept test as well, so that e.g. a fast projectile cannot skip over an enemy
+ * between two steps, and they are reported after the step together with the time of impact. The test follows the
+ * straight line between the positions of the bodies before and after the step. How the bodies react (e.g. removing
+ * a projectile or bouncing an enemy back) is up to the listener.
+ */
+public class World {
+
+    private static final int STATIC = 1, DYNAMIC = 2, MAX_ITERATIONS = 4;
+    private static final int TOUCH_NORTH = 1, TOUCH_EAST = 2, TOUCH_SOUTH = 4, TOUCH_WEST = 8;
+    // the distance kept between a dynamic body and a barrier it has hit, so that it can slide along the barrier
+    private static final float SKIN = 1e-3f;
+
+    private float[] x = new float[64], y = new float[64], width = new float[64], height = new float[64],
+            vx = new float[64], vy = new float[64], gravity = new float[64], offsetX = new float[64], offsetY = new float[64],
+            startX = new float[64], startY = new float[64];
+    private int[] kinds = new int[64], contacts = new int[64], freeBodies = new int[16];
+    private Transformable[] objects = new Transformable[64];
+    private int bodyCount = 0, freeCount = 0;
+    private float cellSize = 64;
+    // grid of the static bodies, rebuilt when they change
+    private boolean gridValid = false;
+    private int columns, rows;
+    private float gridLeft, gridTop, gridCellSize;
+    private int[] cellStarts = new int[1], cellBodies = new int[0], stamps = new int[64];
+    private int stamp = 0;
+    private float hitTime;
+    private boolean hitHorizontal;
+    // dynamic bodies sorted by the left edges of their swept bounds, and the contacts found in the last step
+    private ContactListener contactListener = null;
+    private long[] sweepKeys = new long[64];
+    private int[] contactPairs = new int[32];
+    private float[] contactData = new float[48];
+    private int contactCount = 0;
+
+    /**
+     * Adds a static body with the specified bounds. Static bodies never move and stop the dynamic bodies.
+     *
+     * @param bounds the bounds of the body
+     * @return the handle of the body
+     */
+    public int addStatic(@NotNull FloatRect bounds) {
+        final int body = allocate(STATIC, bounds, null);
+        gridValid = false;
+        return body;
+    }
+
+    /**
+     * Adds a static body with the global bounds of the specified object. The body does
+     * not follow the object if it is moved later, it has to be removed and added again.
+     *
+     * @param object a stationary object
+     * @return the handle of the body
+     */
+    public int addStatic(@NotNull BoundsObject object) {
+        return addStatic(object.getGlobalBounds());
+    }
+
+    /**
+     * Adds a dynamic body with the global bounds of the specified object. The position of the object is updated
+     * by every step. The size of the body is fixed, it does not follow the changes of the object size.
+     *
+     * @param object  an object moved by this world
+     * @param gravity the gravity acceleration of the body
+     * @param <T>     the type of the object
+     * @return the handle of the body
+     */
+    public <T extends Transformable & BoundsObject> int addDynamic(@NotNull T object, float gravity) {
+        final int body = allocate(DYNAMIC, object.getGlobalBounds(), object);
+        final Vector2f position = object.getPosition();
+        offsetX[body] = position.x - x[body];
+        offsetY[body] = position.y - y[body];
+        this.gravity[body] = gravity;
+        return body;
+    }
+
+    /**
+     * Adds a dynamic body with the specified bounds, which is not connected with any object.
+     *
+     * @param bounds  the initial bounds of the body
+     * @param gravity the gravity acceleration of the body
+     * @return the handle of the body
+     */
+    public int addDynamic(@NotNull FloatRect bounds, float gravity) {
+        final int body = allocate(DYNAMIC, bounds, null);
+        this.gravity[body] = gravity;
+        return body;
+    }
+
+    /**
+     * Removes the specified body from this world. The handle may be reused by a body added later.
+     *
+     * @param body the handle of the body
+     */
+    public void remove(int body) {
+        final int kind = check(body);
+        kinds[body] = 0;
+        objects[body] = null;
+        if (kind == STATIC) gridValid = false;
+        if (freeCount == freeBodies.length) freeBodies = Arrays.copyOf(freeBodies, freeCount * 2);
+        freeBodies[freeCount++] = body;
+    }
+
+    /**
+     * Removes all the bodies from this world.
+     */
+    public void clear() {
+        Arrays.fill(kinds, 0, bodyCount, 0);
+        Arrays.fill(objects, 0, bodyCount, null);
+        bodyCount = freeCount = 0;
+        gridValid = false;
+    }
+
+    /**
+     * @param body the handle of a body
+     * @return whether the body is static
+     */
+    public boolean isStatic(int body) {
+        return check(body) == STATIC;
+    }
+
+    /**
+     * @param body the handle of a body
+     * @return the current bounds of the body
+     */
+    public FloatRect getBounds(int body) {
+        check(body);
+        return new FloatRect(x[body], y[body], width[body], height[body]);
+    }
+
+    /**
+     * Moves a dynamic body (and its object) to the specified position, without checking collisions.
+     *
+     * @param body the handle of a dynamic body
+     * @param left the X coordinate of the left edge of the body
+     * @param top  the Y coordinate of the top edge of the body
+     */
+    public void setPosition(int body, float left, float top) {
+        checkDynamic(body);
+        x[body] = left;
+        y[body] = top;
+        writeBack(body);
+    }
+
+    /**
+     * @param body the handle of a body
+     * @return the velocity of the body
+     */
+    public Vector2f getVelocity(int body) {
+        check(body);
+        return Vec2.f(vx[body], vy[body]);
+    }
+
+    /**
+     * @param body the handle of a body
+     * @return the X component of the velocity of the body
+     */
+    public float getVelocityX(int body) {
+        check(body);
+        return vx[body];
+    }
+
+    /**
+     * @param body the handle of a body
+     * @return the Y component of the velocity of the body
+     */
+    public float getVelocityY(int body) {
+        check(body);
+        return vy[body];
+    }
+
+    /**
+     * Sets the velocity of a dynamic body.
+     *
+     * @param body the handle of a dynamic body
+     * @param x    the X component of the velocity
+     * @param y    the Y component of the velocity
+     */
+    public void setVelocity(int body, float x, float y) {
+        checkDynamic(body);
+        vx[body] = x;
+        vy[body] = y;
+    }
+
+    /**
+     * @param body the handle of a body
+     * @return the gravity acceleration of the body
+     */
+    public float getGravity(int body) {
+        check(body);
+        return gravity[body];
+    }
+
+    /**
+     * Sets the gravity acceleration of a dynamic body.
+     *
+     * @param body    the handle of a dynamic body
+     * @param gravity the gravity acceleration of the body
+     */
+    public void setGravity(int body, float gravity) {
+        checkDynamic(body);
+        this.gravity[body] = gravity;
+    }
+
+    /**
+     * Checks whether a dynamic body has hit a static body on the specified side in the last step. For
+     * example, {@code isTouching(body, Direction.SOUTH)} returns whether the body is standing on the ground.
+     *
+     * @param body the handle of a dynamic body
+     * @param side {@link Direction#NORTH}, {@link Direction#EAST}, {@link Direction#SOUTH} or {@link Direction#WEST}
+     * @return whether the body has hit a static body on the specified side in the last step
+     */
+    public boolean isTouching(int body, @NotNull Direction side) {
+        checkDynamic(body);
+        final int flag = switch (side) {
+            case NORTH -> TOUCH_NORTH;
+            case EAST -> TOUCH_EAST;
+            case SOUTH -> TOUCH_SOUTH;
+            case WEST -> TOUCH_WEST;
+            default -> throw new IllegalArgumentException("The side must be one of the cardinal directions");
+        };
+        return (contacts[body] & flag) != 0;
+    }
+
+    /**
+     * @return the listener notified about the dynamic bodies meeting each other, or {@code null} if none is set
+     */
+    @Nullable
+    public ContactListener getContactListener() {
+        return contactListener;
+    }
+
+    /**
+     * Sets the listener notified after every step about the pairs of dynamic bodies that have met during the step.
+     * The dynamic bodies are only tested against each other if a listener is set.
+     *
+     * @param contactListener the listener, or {@code null} to stop testing the dynamic bodies against each other
+     */
+    public void setContactListener(@Nullable ContactListener contactListener) {
+        this.contactListener = contactListener;
+    }
+
+    /**
+     * @return the side length of the cells of the grid used to find the static bodies near a moving body
+     */
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Sets the side length of the cells of the grid used to find the static bodies near a moving body. The cells should
+     * be about the size of a typical static body. The default cell size is 64. If the static bodies span a very large
+     * area, the cells are enlarged so that the grid does not have more than about a million cells.
+     *
+     * @param cellSize the side length of the grid cells
+     */
+    public void setCellSize(float cellSize) {
+        if (!(cellSize > 0)) throw new IllegalArgumentException("The cell size must be positive");
+        this.cellSize = cellSize;
+        gridValid = false;
+    }
+
+    /**
+     * Advances the simulation by the specified time.
+     *
+     * @param deltaTime the time to advance the simulation by
+     * @see #step(float)
+     */
+    public void step(@NotNull Time deltaTime) {
+        step(deltaTime.asSeconds());
+    }
+
+    /**
+     * Advances the simulation by the specified time: applies the gravity to the velocities of the dynamic bodies,
+     * moves them until they hit a static body, then makes them slide along it (the velocity component towards the
+     * static body is set to zero), and finally writes the new positions to the objects of the bodies. If a contact
+     * listener is set, it is then notified about the dynamic bodies that have met each other during the step.
+     *
+     * @param deltaTime the time to advance the simulation by (in seconds)
+     */
+    public void step(float deltaTime) {
+        if (!gridValid) buildGrid();
+        for (int body = 0; body < bodyCount; body++) {
+            if (kinds[body] != DYNAMIC) continue;
+            startX[body] = x[body];
+            startY[body] = y[body];
+            vy[body] += gravity[body] * deltaTime;
+            float dx = vx[body] * deltaTime, dy = vy[body] * deltaTime;
+            int touching = 0;
+            for (int iteration = 0; iteration < MAX_ITERATIONS && (dx != 0 || dy != 0); iteration++) {
+                if (!sweep(body, dx, dy)) {
+                    x[body] += dx;
+                    y[body] += dy;
+                    break;
+                }
+                final float time = hitTime;
+                x[body] += dx * time;
+                y[body] += dy * time;
+                if (hitHorizontal) {
+                    x[body] -= Math.signum(dx) * SKIN;
+                    touching |= dx > 0 ? TOUCH_EAST : TOUCH_WEST;
+                    vx[body] = 0;
+                    dx = 0;
+                    dy *= 1 - time;
+                } else {
+                    y[body] -= Math.signum(dy) * SKIN;
+                    touching |= dy > 0 ? TOUCH_SOUTH : TOUCH_NORTH;
+                    vy[body] = 0;
+                    dy = 0;
+                    dx *= 1 - time;
+                }
+            }
+            contacts[body] = touching;
+            writeBack(body);
+        }
+        if (contactListener != null) reportContacts();
+    }
+
+    /**
+     * Finds the pairs of dynamic bodies whose movements in the last step intersect and notifies the contact listener.
+     * The candidate pairs are found by sorting the bodies by the left edges of their swept bounds and sweeping along
+     * the X axis, so only the bodies whose swept bounds overlap horizontally are tested.
+     */
+    private void reportContacts() {
+        int n = 0;
+        for (int body = 0; body < bodyCount; body++) {
+            if (kinds[body] != DYNAMIC) continue;
+            if (n == sweepKeys.length) sweepKeys = Arrays.copyOf(sweepKeys, n * 2);
+            int key = Float.floatToIntBits(Math.min(startX[body], x[body]));
+            // the bits of a negative float are flipped so that the keys are ordered like the floats
+            key ^= (key >> 31) & 0x7FFFFFFF;
+            sweepKeys[n++] = (long) key << 32 | body;
+        }
+        Arrays.sort(sweepKeys, 0, n);
+        contactCount = 0;
+        for (int i = 0; i < n; i++) {
+            final int body = (int) sweepKeys[i];
+            final float right = Math.max(startX[body], x[body]) + width[body],
+                    top = Math.min(startY[body], y[body]), bottom = Math.max(startY[body], y[body]) + height[body];
+            for (int j = i + 1; j < n; j++) {
+                final int other = (int) sweepKeys[j];
+                if (Math.min(startX[other], x[other]) > right) break;
+                if (Math.min(startY[other], y[other]) > bottom ||
+                    Math.max(startY[other], y[other]) + height[other] < top) continue;
+                final float time = impactTime(body, other);
+                if (time >= 0) addContact(body, other, time);
+            }
+        }
+        final ContactListener listener = contactListener;
+        for (int i = 0; i < contactCount; i++) {
+            final int body = contactPairs[2 * i], other = contactPairs[2 * i + 1];
+            // a body might have been removed by the listener notified about an earlier contact
+            if (kinds[body] == DYNAMIC && kinds[other] == DYNAMIC)
+                listener.contact(body, other, contactData[3 * i], contactData[3 * i + 1], contactData[3 * i + 2]);
+        }
+    }
+
+    /**
+     * Computes when the first body meets the second one during the last step, moving both of them along the straight
+     * line from the start to the end of the step. Whether the bodies met on a vertical side is stored in
+     * {@link #hitHorizontal}.
+     *
+     * @return the time of impact as a fraction of the step, 0 if the bodies were already overlapping at the start of
+     * the step, or -1 if they do not meet
+     */
+    private float impactTime(int body, int other) {
+        final float dx = (x[body] - startX[body]) - (x[other] - startX[other]),
+                dy = (y[body] - startY[body]) - (y[other] - startY[other]);
+        final float left = startX[body], top = startY[body], right = left + width[body], bottom = top + height[body],
+                oLeft = startX[other], oTop = startY[other],
+                oRight = oLeft + width[other], oBottom = oTop + height[other];
+        final float xEntry, xExit, yEntry, yExit;
+        if (dx > 0) {
+            xEntry = (oLeft - right) / dx;
+            xExit = (oRight - left) / dx;
+        } else if (dx < 0) {
+            xEntry = (oRight - left) / dx;
+            xExit = (oLeft - right) / dx;
+        } else if (right > oLeft && left < oRight) {
+            xEntry = Float.NEGATIVE_INFINITY;
+            xExit = Float.POSITIVE_INFINITY;
+        } else return -1;
+        if (dy > 0) {
+            yEntry = (oTop - bottom) / dy;
+            yExit = (oBottom - top) / dy;
+        } else if (dy < 0) {
+            yEntry = (oBottom - top) / dy;
+            yExit = (oTop - bottom) / dy;
+        } else if (bottom > oTop && top < oBottom) {
+            yEntry = Float.NEGATIVE_INFINITY;
+            yExit = Float.POSITIVE_INFINITY;
+        } else return -1;
+        final float entry = Math.max(xEntry, yEntry), exit = Math.min(xExit, yExit);
+        if (entry >= exit || entry > 1 || exit <= 0) return -1;
+        hitHorizontal = xEntry > yEntry;
+        return Math.max(0, entry);
+    }
+
+    private void addContact(int body, int other, float time) {
+        if (2 * contactCount == contactPairs.length) {
+            contactPairs = Arrays.copyOf(contactPairs, 4 * contactCount);
+            contactData = Arrays.copyOf(contactData, 6 * contactCount);
+        }
+        float normalX = 0, normalY = 0;
+        if (time > 0) {
+            // the normal of the side of the other body that was hit, pointing towards the first body
+            final float dx = (x[body] - startX[body]) - (x[other] - startX[other]),
+                    dy = (y[body] - startY[body]) - (y[other] - startY[other]);
+            if (hitHorizontal) normalX = -Math.signum(dx);
+            else normalY = -Math.signum(dy);
+        }
+        contactPairs[2 * contactCount] = body;
+        contactPairs[2 * contactCount + 1] = other;
+        contactData[3 * contactCount] = time;
+        contactData[3 * contactCount + 1] = normalX;
+        contactData[3 * contactCount + 2] = normalY;
+        contactCount++;
+    }
+
+    /**
+     * Finds the earliest static body hit by the specified body moving by the specified displacement. The time of impact
+     * (as a fraction of the displacement) and whether a vertical side was hit are stored in {@link #hitTime} and
+     * {@link #hitHorizontal}.
+     *
+     * @return whether any static body is hit
+     */
+    private boolean sweep(int body, float dx, float dy) {
+        if (columns == 0) return false;
+        final float left = x[body], top = y[body], right = left + width[body], bottom = top + height[body];
+        final int c0 = cell(Math.min(left, left + dx), gridLeft, columns),
+                c1 = cell(Math.max(right, right + dx), gridLeft, columns),
+                r0 = cell(Math.min(top, top + dy), gridTop, rows),
+                r1 = cell(Math.max(bottom, bottom + dy), gridTop, rows);
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        float earliest = 1;
+        boolean horizontal = false, found = false;
+        for (int r = r0; r <= r1; r++)
+            for (int c = c0; c <= c1; c++) {
+                final int cell = r * columns + c;
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    final int other = cellBodies[i];
+                    if (stamps[other] == stamp) continue;
+                    stamps[other] = stamp;
+                    final float oLeft = x[other], oTop = y[other], oRight = oLeft + width[other],
+                            oBottom = oTop + height[other];
+                    final float xEntry, xExit, yEntry, yExit;
+                    if (dx > 0) {
+                        xEntry = (oLeft - right) / dx;
+                        xExit = (oRight - left) / dx;
+                    } else if (dx < 0) {
+                        xEntry = (oRight - left) / dx;
+                        xExit = (oLeft - right) / dx;
+                    } else if (right > oLeft && left < oRight) {
+                        xEntry = Float.NEGATIVE_INFINITY;
+                        xExit = Float.POSITIVE_INFINITY;
+                    } else continue;
+                    if (dy > 0) {
+                        yEntry = (oTop - bottom) / dy;
+                        yExit = (oBottom - top) / dy;
+                    } else if (dy < 0) {
+                        yEntry = (oBottom - top) / dy;
+                        yExit = (oTop - bottom) / dy;
+                    } else if (bottom > oTop && top < oBottom) {
+                        yEntry = Float.NEGATIVE_INFINITY;
+                        yExit = Float.POSITIVE_INFINITY;
+                    } else continue;
+                    final float entry = Math.max(xEntry, yEntry), exit = Math.min(xExit, yExit);
+                    // the bodies that are already intersecting are ignored, so that a body can leave them
+                    if (entry >= exit || entry < 0 || entry > earliest || (xEntry < 0 && yEntry < 0)) continue;
+                    earliest = entry;
+                    horizontal = xEntry > yEntry;
+                    found = true;
+                }
+            }
+        hitTime = earliest;
+        hitHorizontal = horizontal;
+        return found;
+    }
+
+    private void buildGrid() {
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY,
+                right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        for (int body = 0; body < bodyCount; body++) {
+            if (kinds[body] != STATIC) continue;
+            left = Math.min(left, x[body]);
+            top = Math.min(top, y[body]);
+            right = Math.max(right, x[body] + width[body]);
+            bottom = Math.max(bottom, y[body] + height[body]);
+        }
+        gridValid = true;
+        if (left > right) {
+            columns = rows = 0;
+            return;
+        }
+        gridCellSize = Math.max(cellSize, (float) Math.sqrt((double) (right - left) * (bottom - top) / (1 << 20)));
+        gridLeft = left;
+        gridTop = top;
+        columns = Math.max(1, (int) Math.ceil((right - left) / gridCellSize));
+        rows = Math.max(1, (int) Math.ceil((bottom - top) / gridCellSize));
+        final int cells = columns * rows;
+        if (cellStarts.length < cells + 1) cellStarts = new int[cells + 1];
+        Arrays.fill(cellStarts, 0, cells + 1, 0);
+        // first pass: count the bodies of every cell, second pass: fill the cells
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                for (int c = 0; c < cells; c++) cellStarts[c + 1] += cellStarts[c];
+                if (cellBodies.length < cellStarts[cells]) cellBodies = new int[cellStarts[cells]];
+                System.arraycopy(cellStarts, 0, cellStarts, 1, cells);
+                cellStarts[0] = 0;
+            }
+            for (int body = 0; body < bodyCount; body++) {
+                if (kinds[body] != STATIC) continue;
+                final int c0 = cell(x[body], gridLeft, columns), c1 = cell(x[body] + width[body], gridLeft, columns),
+                        r0 = cell(y[body], gridTop, rows), r1 = cell(y[body] + height[body], gridTop, rows);
+                for (int r = r0; r <= r1; r++)
+                    for (int c = c0; c <= c1; c++) {
+                        final int cell = r * columns + c;
+                        if (pass == 0) cellStarts[cell + 1]++;
+                        else cellBodies[cellStarts[cell + 1]++] = body;
+                    }
+            }
+        }
+    }
+
+    private int cell(float coordinate, float origin, int cells) {
+        return (int) Math.max(0, Math.min(cells - 1, Math.floor((coordinate - origin) / gridCellSize)));
+    }
+
+    private int allocate(int kind, @Nullable FloatRect bounds, @Nullable Transformable object) {
+        if (bounds == null) throw new IllegalArgumentException("The bounds of the body cannot be determined");
+        final int body;
+        if (freeCount > 0) body = freeBodies[--freeCount];
+        else {
+            if (bodyCount == kinds.length) grow(bodyCount * 2);
+            body = bodyCount++;
+        }
+        kinds[body] = kind;
+        objects[body] = object;
+        x[body] = Math.min(bounds.left, bounds.right);
+        y[body] = Math.min(bounds.top, bounds.bottom);
+        width[body] = Math.abs(bounds.width);
+        height[body] = Math.abs(bounds.height);
+        vx[body] = vy[body] = gravity[body] = offsetX[body] = offsetY[body] = 0;
+        contacts[body] = 0;
+        return body;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        gravity = Arrays.copyOf(gravity, capacity);
+        offsetX = Arrays.copyOf(offsetX, capacity);
+        offsetY = Arrays.copyOf(offsetY, capacity);
+        startX = Arrays.copyOf(startX, capacity);
+        startY = Arrays.copyOf(startY, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        contacts = Arrays.copyOf(contacts, capacity);
+        stamps = Arrays.copyOf(stamps, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+    }
+
+    private void writeBack(int body) {
+        final Transformable object = objects[body];
+        if (object != null) object.setPosition(x[body] + offsetX[body], y[body] + offsetY[body]);
+    }
+
+    private int check(int body) {
+        if (body < 0 || body >= bodyCount || kinds[body] == 0)
+            throw new IllegalArgumentException("There is no body with the handle " + body);
+        return kinds[body];
+    }
+
+    private void checkDynamic(int body) {
+        if (check(body) != DYNAMIC) throw new IllegalArgumentException("The body " + body + " is not dynamic");
+    }
+
+    /**
+     * A listener notified about the dynamic bodies of a {@link World} meeting each other.
+     */
+    @FunctionalInterface
+    public interface ContactListener {
+
+        /**
+         * Called after a step for every pair of dynamic bodies that have met during the step. The listener may modify
+         * the world, e.g. remove the bodies; the contacts of the bodies removed this way are not reported anymore.
+         *
+         * @param body    the handle of a dynamic body
+         * @param other   the handle of the dynamic body that the first one has met
+         * @param time    the time of impact, as a fraction of the step between 0 and 1, or 0 if the
+         *                bodies were already overlapping at the start of the step
+         * @param normalX the X component of the normal of the side of the other body that was hit, pointing towards
+         *                the first body (0 if the bodies were already overlapping)
+         * @param normalY the Y component of the normal of the side of the other body that was hit, pointing towards
+         *                the first body (0 if the bodies were already overlapping)
+         */
+        void contact(int body, int other, float time, float normalX, float normalY);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021-2022 Alex Pawelski
+ *
+ * Licensed under the Silicon License, Version 1.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   https://rubynaxela.github.io/Silicon-License/plain_text.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ */
+
+package com.rubynaxela.kyanite.window;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * A copy-on-write registry of event listeners. The listeners are kept in an array which is replaced on every
+ * modification, so dispatching an event only reads the current snapshot and does not allocate anything, and
+ * the listeners may add or remove listeners while the event is being dispatched.
+ *
+ * @param <T> the listener type
+ */
+final class ListenerList<T> {
+
+    private final T[] empty;
+    private volatile T[] snapshot;
+
+    ListenerList(@NotNull IntFunction<T[]> generator) {
+        snapshot = empty = generator.apply(0);
+    }
+
+    /**
+     * @return the current listeners, which must not be modified
+     */
+    T[] get() {
+        return snapshot;
+    }
+
+    synchronized void add(@NotNull T listener) {
+        final T[] listeners = Arrays.copyOf(snapshot, snapshot.length + 1);
+        listeners[listeners.length - 1] = listener;
+        snapshot = listeners;
+    }
+
+    synchronized void remove(@NotNull T listener) {
+        final T[] listeners = snapshot;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                final T[] result = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+                snapshot = result.length > 0 ? result : empty;
+                return;
+            }
+        }
+    }
+
+    synchronized void clear() {
+        snapshot = empty;
+    }
+}
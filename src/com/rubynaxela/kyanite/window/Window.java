@@ -14,24 +14,28 @@
 
 package com.rubynaxela.kyanite.window;
 
+import com.rubynaxela.kyanite.game.FrameStats;
+import com.rubynaxela.kyanite.game.GameContext;
 import com.rubynaxela.kyanite.game.HUD;
+import com.rubynaxela.kyanite.game.LatencyStats;
 import com.rubynaxela.kyanite.game.Scene;
+import com.rubynaxela.kyanite.game.SceneLoader;
 import com.rubynaxela.kyanite.game.assets.AudioHandler;
 import com.rubynaxela.kyanite.game.assets.Icon;
-import com.rubynaxela.kyanite.game.entities.CompoundEntity;
 import com.rubynaxela.kyanite.game.entities.MouseActionListener;
 import com.rubynaxela.kyanite.graphics.*;
-import com.rubynaxela.kyanite.input.Mouse;
+import com.rubynaxela.kyanite.input.InputRecorder;
+import com.rubynaxela.kyanite.input.InputSnapshot;
 import com.rubynaxela.kyanite.math.*;
 import com.rubynaxela.kyanite.util.Utils;
 import com.rubynaxela.kyanite.window.event.*;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Provides a window that can serve as a target for 2D drawing. The window is already initialized
@@ -42,19 +46,27 @@ public class Window extends RenderWindow {
 
     private final AudioHandler audioHandler;
 
-    private final List<ResizeListener> resizeListeners = new ArrayList<>();
-    private final List<FocusListener> focusListeners = new ArrayList<>();
-    private final List<TextListener> textListeners = new ArrayList<>();
-    private final List<KeyListener> keyListeners = new ArrayList<>();
-    private final List<MouseWheelListener> mouseWheelListeners = new ArrayList<>();
-    private final List<MouseButtonListener> mouseButtonListeners = new ArrayList<>();
-    private final List<MouseListener> mouseListeners = new ArrayList<>();
-    private final List<JoystickButtonListener> joystickButtonListeners = new ArrayList<>();
-    private final List<JoystickListener> joystickListeners = new ArrayList<>();
-    private final List<JoystickConnectionListener> joystickConnectionListeners = new ArrayList<>();
+    private final ListenerList<ResizeListener> resizeListeners = new ListenerList<>(ResizeListener[]::new);
+    private final ListenerList<FocusListener> focusListeners = new ListenerList<>(FocusListener[]::new);
+    private final ListenerList<TextListener> textListeners = new ListenerList<>(TextListener[]::new);
+    private final ListenerList<KeyListener> keyListeners = new ListenerList<>(KeyListener[]::new);
+    private final ListenerList<MouseWheelListener> mouseWheelListeners = new ListenerList<>(MouseWheelListener[]::new);
+    private final ListenerList<MouseButtonListener> mouseButtonListeners = new ListenerList<>(MouseButtonListener[]::new);
+    private final ListenerList<MouseListener> mouseListeners = new ListenerList<>(MouseListener[]::new);
+    private final ListenerList<JoystickButtonListener> joystickButtonListeners =
+            new ListenerList<>(JoystickButtonListener[]::new);
+    private final ListenerList<JoystickListener> joystickListeners = new ListenerList<>(JoystickListener[]::new);
+    private final ListenerList<JoystickConnectionListener> joystickConnectionListeners =
+            new ListenerList<>(JoystickConnectionListener[]::new);
+    private final List<SceneLoader> preloadingScenes = new ArrayList<>();
+    private final Queue<Event> pendingEvents = new ArrayDeque<>();
+    private final List<JoystickMoveEvent> coalescedMoves = new ArrayList<>();
     private CloseListener closeListener = this::close;
+    private SceneLoader sceneLoader = null;
+    private MouseActionListener hoveredListener = null;
+    private Vector2i hoverPosition = null;
 
-    private boolean running = false, resizable = false;
+    private boolean running = false, resizable = false, eventCoalescingEnabled = false;
     private int framerateLimit = 60;
     private String title;
     private Vector2i lastSetSize;
@@ -220,6 +232,28 @@ public class Window extends RenderWindow {
         setPosition(Vec2.i(0, 0));
     }
 
+    /**
+     * @return whether the consecutive movement events are merged before being dispatched to the listeners
+     */
+    public boolean isEventCoalescingEnabled() {
+        return eventCoalescingEnabled;
+    }
+
+    /**
+     * Sets whether the consecutive movement events are merged before being dispatched to the listeners. If enabled,
+     * only the last of consecutive {@link Event.Type#MOUSE_MOVED} events polled in the same frame is dispatched,
+     * and of consecutive {@link Event.Type#JOYSTICK_MOVED} events, only the last one for every joystick axis is
+     * dispatched. This reduces the cost of handling high-polling-rate mice and gamepads, which can generate
+     * hundreds of movement events per frame, at the expense of the intermediate positions. Events of other types
+     * are never merged, and the movement events separated by them are not merged either. Coalescing is disabled
+     * by default.
+     *
+     * @param enabled {@code true} to merge the consecutive movement events
+     */
+    public void setEventCoalescingEnabled(boolean enabled) {
+        this.eventCoalescingEnabled = enabled;
+    }
+
     /**
      * Sets the specified close listener to receive the close button press event from this window.
      *
@@ -506,18 +540,56 @@ public class Window extends RenderWindow {
     }
 
     /**
-     * Changes the current scene of this window and initializes it (calls its {@code init()} method).
+     * Changes the current scene of this window and initializes it (calls its {@code init()} method). If the scene
+     * is being prepared in the background (see {@link #preloadScene}), the window waits for the preparation to finish
+     * first. A scene switch scheduled with {@link #loadScene} is cancelled by this method.
      *
      * @param scene the new scene to be displayed on this window
      * @return the reference to this window
      */
     public Window setScene(@NotNull Scene scene) {
+        sceneLoader = null;
+        if (scene.getLoader() != null) scene.getLoader().await();
+        setHoveredListener(null);
+        InputRecorder.prepareScene(scene);
         this.scene = scene;
         scene.fullInit();
         scene.setMaxLagFactor(scene.getMaxLagFactor());
         return this;
     }
 
+    /**
+     * Starts preparing the specified scene in the background (see {@link Scene#preload}), while the current scene is
+     * still displayed. The scene can be assigned to this window with the {@link #setScene} method when the returned
+     * loader is done; if it is assigned earlier, the window waits for the preparation to finish.
+     *
+     * @param scene            the scene to be prepared
+     * @param progressCallback the action to be executed on the window thread every time the progress changes, with
+     *                         the progress between 0 and 1 as the argument (e.g. to update a loading HUD), or
+     *                         {@code null}
+     * @return the loader preparing the scene
+     */
+    public SceneLoader preloadScene(@NotNull Scene scene, @Nullable Consumer<? super Float> progressCallback) {
+        final SceneLoader loader = new SceneLoader(scene, progressCallback);
+        preloadingScenes.add(loader);
+        return loader;
+    }
+
+    /**
+     * Prepares the specified scene in the background (see {@link #preloadScene}) and changes the current scene of
+     * this window to it as soon as the preparation is finished. If the preparation fails, the current scene stays
+     * displayed and the failure is reported by the returned loader (see {@link SceneLoader#setFailureCallback}).
+     *
+     * @param scene            the new scene to be displayed on this window
+     * @param progressCallback the action to be executed on the window thread every time the progress changes, with
+     *                         the progress between 0 and 1 as the argument (e.g. to update a loading HUD), or
+     *                         {@code null}
+     * @return the loader preparing the scene
+     */
+    public SceneLoader loadScene(@NotNull Scene scene, @Nullable Consumer<? super Float> progressCallback) {
+        return sceneLoader = preloadScene(scene, progressCallback);
+    }
+
     /**
      * @param <T> the current HUD layer class
      * @return reference to the current HUD layer of this window.
@@ -534,32 +606,115 @@ public class Window extends RenderWindow {
      * @return the reference to this window
      */
     public Window setHUD(@NotNull HUD hud) {
+        setHoveredListener(null);
         this.hud = hud;
         hud.fullInit();
         return this;
     }
 
     /**
-     * Starts the window loop.
+     * Starts the window loop. The durations of the phases of every frame are recorded
+     * in the game frame statistics (see {@link GameContext#getFrameStats}), and the input-to-photon
+     * latencies of the events marked as rendered in the game latency statistics
+     * (see {@link GameContext#getLatencyStats}) when the frame is displayed.
      */
     public void startLoop() {
         if (!running) {
             running = true;
+            final FrameStats stats = GameContext.getInstance().getFrameStats();
+            final LatencyStats latency = GameContext.getInstance().getLatencyStats();
             while (isOpen()) {
+                stats.beginFrame();
+                long time = stats.start();
                 clear(scene.getBackgroundColor());
+                time = stats.record(FrameStats.Phase.CLEAR, time);
+                InputRecorder.nextFrame();
+                InputSnapshot.capture(this);
                 handleEvents();
+                refreshHoveredListener();
+                stats.record(FrameStats.Phase.HANDLE_EVENTS, time);
+                if (!preloadingScenes.isEmpty()) updateSceneLoaders();
                 scene.fullLoop(this);
+                time = stats.start();
                 hud.refresh(this);
+                time = stats.record(FrameStats.Phase.HUD_REFRESH, time);
                 display();
+                latency.framePresented();
+                time = stats.record(FrameStats.Phase.DISPLAY, time);
                 audioHandler.gc();
+                stats.record(FrameStats.Phase.AUDIO_GC, time);
+                stats.endFrame();
             }
+            InputSnapshot.release();
         } else throw new IllegalStateException("The window loop is already running");
     }
 
+    private void updateSceneLoaders() {
+        for (int i = 0; i < preloadingScenes.size(); i++) {
+            final SceneLoader loader = preloadingScenes.get(i);
+            if (loader.update()) {
+                preloadingScenes.remove(i--);
+                if (loader == sceneLoader) {
+                    if (loader.isFailed()) sceneLoader = null;
+                    else setScene(loader.getScene());
+                }
+            }
+        }
+    }
+
+    private MouseActionListener findMouseActionListener(@NotNull Vector2i position) {
+        final Vector2f point = mapPixelToCoords(position);
+        final MouseActionListener target = hud.findMouseActionListener(point);
+        return target != null ? target : scene.findMouseActionListener(point);
+    }
+
+    private void setHoveredListener(@Nullable MouseActionListener listener) {
+        if (listener == hoveredListener) return;
+        final MouseActionListener previous = hoveredListener;
+        hoveredListener = listener;
+        if (previous != null) previous.cursorLeft();
+        if (listener != null) listener.cursorEntered();
+    }
+
+    private void refreshHoveredListener() {
+        // the object under a still cursor might have moved, been added or removed, or the view might have changed,
+        // so the hovered object is looked up every frame, using the hit-test indices of the scene and the HUD
+        if (hoverPosition != null) setHoveredListener(findMouseActionListener(hoverPosition));
+    }
+
+    private Event nextEvent() {
+        if (!pendingEvents.isEmpty()) return pendingEvents.poll();
+        final Event event = InputRecorder.pollEvent(this);
+        if (!eventCoalescingEnabled || event == null) return event;
+        if (event.type == Event.Type.MOUSE_MOVED) {
+            Event last = event, next;
+            while ((next = InputRecorder.pollEvent(this)) != null && next.type == Event.Type.MOUSE_MOVED) last = next;
+            if (next != null) pendingEvents.add(next);
+            return last;
+        }
+        if (event.type == Event.Type.JOYSTICK_MOVED) {
+            coalescedMoves.add((JoystickMoveEvent) event);
+            Event next;
+            while ((next = InputRecorder.pollEvent(this)) != null && next.type == Event.Type.JOYSTICK_MOVED) {
+                final JoystickMoveEvent move = (JoystickMoveEvent) next;
+                int i = 0;
+                while (i < coalescedMoves.size() && (coalescedMoves.get(i).joystickId != move.joystickId ||
+                                                     coalescedMoves.get(i).joyAxis != move.joyAxis)) i++;
+                if (i < coalescedMoves.size()) coalescedMoves.set(i, move);
+                else coalescedMoves.add(move);
+            }
+            pendingEvents.addAll(coalescedMoves);
+            coalescedMoves.clear();
+            if (next != null) pendingEvents.add(next);
+            return pendingEvents.poll();
+        }
+        return event;
+    }
+
     private void handleEvents() {
-        for (Event event = pollEvent(); event != null; event = pollEvent()) {
-            final Event ev = event;
-            switch (ev.type) {
+        for (Event event = nextEvent(); event != null; event = nextEvent()) {
+            InputSnapshot.update(event);
+            switch (event.type) {
                 case CLOSED -> closeListener.closed();
                 case RESIZED -> {
                     if (resizable) {
@@ -570,74 +725,75 @@ public class Window extends RenderWindow {
                         setPosition(position);
                         scene.refreshBackgroundTexture();
                         hud.refreshBackgroundTexture();
-                        new ArrayList<>(resizeListeners).forEach(action -> action.resized(new ResizeEvent(Vec2.i(size))));
+                        final ResizeEvent resizeEvent = new ResizeEvent(Vec2.i(size));
+                        for (final ResizeListener listener : resizeListeners.get()) listener.resized(resizeEvent);
                         lastSetSize = getSize();
                     } else setSize(lastSetSize);
                 }
-                case LOST_FOCUS -> new ArrayList<>(focusListeners).forEach(FocusListener::focusLost);
-                case GAINED_FOCUS -> new ArrayList<>(focusListeners).forEach(FocusListener::focusGained);
-                case TEXT_ENTERED -> new ArrayList<>(textListeners).forEach(l -> l.textEntered((TextEvent) ev));
-                case KEY_PRESSED -> new ArrayList<>(keyListeners).forEach(l -> l.keyPressed((KeyEvent) ev));
-                case KEY_RELEASED -> new ArrayList<>(keyListeners).forEach(l -> l.keyReleased((KeyEvent) ev));
-                case MOUSE_WHEEL_MOVED ->
-                        new ArrayList<>(mouseWheelListeners).forEach(l -> l.mouseWheelMoved((MouseWheelEvent) ev));
+                case LOST_FOCUS -> {
+                    for (final FocusListener listener : focusListeners.get()) listener.focusLost();
+                }
+                case GAINED_FOCUS -> {
+                    for (final FocusListener listener : focusListeners.get()) listener.focusGained();
+                }
+                case TEXT_ENTERED -> {
+                    for (final TextListener listener : textListeners.get()) listener.textEntered((TextEvent) event);
+                }
+                case KEY_PRESSED -> {
+                    for (final KeyListener listener : keyListeners.get()) listener.keyPressed((KeyEvent) event);
+                }
+                case KEY_RELEASED -> {
+                    for (final KeyListener listener : keyListeners.get()) listener.keyReleased((KeyEvent) event);
+                }
+                case MOUSE_WHEEL_MOVED -> {
+                    for (final MouseWheelListener listener : mouseWheelListeners.get())
+                        listener.mouseWheelMoved((MouseWheelEvent) event);
+                }
                 case MOUSE_BUTTON_PRESSED -> {
-                    new ArrayList<>(mouseButtonListeners).forEach(l -> l.mouseButtonPressed((MouseButtonEvent) ev));
-                    boolean hudClicked = false;
-                    for (int i = hud.size() - 1; i >= 0; i--) {
-                        if (hud.get(i) instanceof final CompoundEntity compoundEntity) {
-                            // TODO Make this work with unlimited CompoundEntity nesting, and with Scene
-                            for (int j = compoundEntity.getComponents().size() - 1; j >= 0; j--) {
-                                final MouseActionListener listener = Utils.cast(compoundEntity.getComponents().get(j),
-                                                                                MouseActionListener.class);
-                                if (listener != null &&
-                                    listener.isCursorInside(Vec2.add(Vec2.subtract(Mouse.getPosition(this),
-                                                                                   Vec2.i(compoundEntity.getPosition())),
-                                                                     Vec2.i(compoundEntity.getOrigin())))) {
-                                    listener.mouseButtonPressed((MouseButtonEvent) ev);
-                                    hudClicked = true;
-                                    break;
-                                }
-                            }
-                        } else {
-                            final MouseActionListener listener = Utils.cast(hud.get(i), MouseActionListener.class);
-                            if (listener != null && listener.isCursorInside(Mouse.getPosition(this))) {
-                                listener.mouseButtonPressed((MouseButtonEvent) ev);
-                                hudClicked = true;
-                                break;
-                            }
-                        }
-                    }
-                    if (!hudClicked) for (int i = scene.size() - 1; i >= 0; i--) {
-                        final MouseActionListener listener = Utils.cast(scene.get(i), MouseActionListener.class);
-                        if (listener != null && listener.isCursorInside(Mouse.getPosition(this))) {
-                            listener.mouseButtonPressed((MouseButtonEvent) ev);
-                            break;
-                        }
-                    }
+                    for (final MouseButtonListener listener : mouseButtonListeners.get())
+                        listener.mouseButtonPressed((MouseButtonEvent) event);
+                    final MouseActionListener target = findMouseActionListener(((MouseEvent) event).position);
+                    if (target != null) target.mouseButtonPressed((MouseButtonEvent) event);
                 }
                 case MOUSE_BUTTON_RELEASED -> {
-                    new ArrayList<>(mouseButtonListeners).forEach(l -> l.mouseButtonReleased((MouseButtonEvent) ev));
-                    for (int i = scene.size() - 1; i >= 0; i--) {
-                        final MouseActionListener listener = Utils.cast(scene.get(i), MouseActionListener.class);
-                        if (listener != null && listener.isCursorInside(Mouse.getPosition(this))) {
-                            listener.mouseButtonReleased((MouseButtonEvent) ev);
-                            break;
-                        }
-                    }
+                    for (final MouseButtonListener listener : mouseButtonListeners.get())
+                        listener.mouseButtonReleased((MouseButtonEvent) event);
+                    final MouseActionListener target = findMouseActionListener(((MouseEvent) event).position);
+                    if (target != null) target.mouseButtonReleased((MouseButtonEvent) event);
+                }
+                case MOUSE_MOVED -> {
+                    for (final MouseListener listener : mouseListeners.get()) listener.mouseMoved((MouseEvent) event);
+                    hoverPosition = ((MouseEvent) event).position;
+                    setHoveredListener(findMouseActionListener(hoverPosition));
+                }
+                case MOUSE_ENTERED -> {
+                    for (final MouseListener listener : mouseListeners.get()) listener.mouseEntered((MouseEvent) event);
+                }
+                case MOUSE_LEFT -> {
+                    for (final MouseListener listener : mouseListeners.get()) listener.mouseLeft((MouseEvent) event);
+                    hoverPosition = null;
+                    setHoveredListener(null);
+                }
+                case JOYSTICK_BUTTON_PRESSED -> {
+                    for (final JoystickButtonListener listener : joystickButtonListeners.get())
+                        listener.joystickButtonPressed((JoystickButtonEvent) event);
+                }
+                case JOYSTICK_BUTTON_RELEASED -> {
+                    for (final JoystickButtonListener listener : joystickButtonListeners.get())
+                        listener.joystickButtonReleased((JoystickButtonEvent) event);
+                }
+                case JOYSTICK_MOVED -> {
+                    for (final JoystickListener listener : joystickListeners.get())
+                        listener.joystickMoved((JoystickMoveEvent) event);
+                }
+                case JOYSTICK_CONNECETED -> {
+                    for (final JoystickConnectionListener listener : joystickConnectionListeners.get())
+                        listener.joystickConnected((JoystickEvent) event);
+                }
+                case JOYSTICK_DISCONNECTED -> {
+                    for (final JoystickConnectionListener listener : joystickConnectionListeners.get())
+                        listener.joystickDisconnected((JoystickEvent) event);
                 }
-                case MOUSE_MOVED -> new ArrayList<>(mouseListeners).forEach(l -> l.mouseMoved((MouseEvent) ev));
-                case MOUSE_ENTERED -> new ArrayList<>(mouseListeners).forEach(l -> l.mouseEntered((MouseEvent) ev));
-                case MOUSE_LEFT -> new ArrayList<>(mouseListeners).forEach(l -> l.mouseLeft((MouseEvent) ev));
-                case JOYSTICK_BUTTON_PRESSED -> new ArrayList<>(joystickButtonListeners).forEach(
-                        l -> l.joystickButtonPressed((JoystickButtonEvent) ev));
-                case JOYSTICK_BUTTON_RELEASED -> new ArrayList<>(joystickButtonListeners).forEach(
-                        l -> l.joystickButtonReleased((JoystickButtonEvent) ev));
-                case JOYSTICK_MOVED -> new ArrayList<>(joystickListeners).forEach(l -> l.joystickMoved((JoystickMoveEvent) ev));
-                case JOYSTICK_CONNECETED -> new ArrayList<>(joystickConnectionListeners).forEach(
-                        l -> l.joystickConnected((JoystickEvent) ev));
-                case JOYSTICK_DISCONNECTED -> new ArrayList<>(joystickConnectionListeners).forEach(
-                        l -> l.joystickDisconnected((JoystickEvent) ev));
             }
         }
     }
@@ -33,6 +33,11 @@ public class Event {
      * @see Type
      */
     public final Type type;
+    /**
+     * The value of {@link System#nanoTime} at the moment the event was polled from the window (or read from the input
+     * log, if it is being replayed). It can be used to measure the latency of the response to the event.
+     */
+    public final long timestamp;
 
     /**
      * Constructs a new event.
@@ -41,6 +46,7 @@ public class Event {
      */
     public Event(@MagicConstant(valuesFromClass = Type.class) int type) {
         this.type = Type.values()[type];
+        this.timestamp = System.nanoTime();
     }
 
     /**